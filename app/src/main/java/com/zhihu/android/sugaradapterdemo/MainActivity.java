@@ -33,6 +33,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.zhihu.android.sugaradapter.SugarAdapter;
 import com.zhihu.android.sugaradapter.SugarHolder;
+import com.zhihu.android.sugaradapter.SugarList;
 import com.zhihu.android.sugaradapterdemo.holder.BarHolder;
 import com.zhihu.android.sugaradapterdemo.holder.FooHolder;
 import com.zhihu.android.sugaradapterdemo.holder.FooHolder2;
@@ -66,7 +67,7 @@ public final class MainActivity extends AppCompatActivity {
 
     // The way of README show off
     private void simpleUsageExample(@NonNull RecyclerView recyclerView) {
-        List<Object> list = new ArrayList<>();
+        SugarList<Object> list = new SugarList<>();
         SugarAdapter adapter = SugarAdapter.Builder.with(list)
                 .add(LibraryHolder.class)
                 .add(FooHolder.class)
@@ -91,8 +92,7 @@ public final class MainActivity extends AppCompatActivity {
             String text = String.valueOf(i);
             list.add(i % 2 == 0 ? new Foo(text) : new Bar(text));
         }
-
-        adapter.notifyDataSetChanged();
+        // SugarList notifies adapter on the next frame
     }
 
     // If one data need map to different holder, use SugarAdapter#addDispatcher method
@@ -101,6 +101,7 @@ public final class MainActivity extends AppCompatActivity {
         SugarAdapter adapter = SugarAdapter.Builder.with(list)
                 .add(FooHolder.class)
                 .add(FooHolder2.class)
+                .stableIds(true) // Foo has @ItemId
                 .build();
         recyclerView.setAdapter(adapter);
 
@@ -129,10 +130,10 @@ public final class MainActivity extends AppCompatActivity {
                 .build();
         recyclerView.setAdapter(adapter);
 
-        adapter.addSugarHolderListener(new SugarAdapter.SugarHolderListener<FooHolder>() {
+        adapter.addSugarHolderListener(new SugarAdapter.SugarHolderListener<FooHolder>(FooHolder.class) {
             @Override
             public void onSugarHolderCreated(@NonNull FooHolder holder) {
-                Log.e(TAG, "onSugarHolderCreated -> " + holder.getData().getText());
+                Log.e(TAG, "onSugarHolderCreated -> " + holder.getItemViewType());
             }
 
             @Override
@@ -171,7 +172,7 @@ public final class MainActivity extends AppCompatActivity {
                 .add(BarHolder.class, holder -> holder.getLifecycle().addObserver(new LifecycleObserver() {
                     @OnLifecycleEvent(Lifecycle.Event.ON_CREATE)
                     public void onSugarHolderCreated(@NonNull LifecycleOwner owner) {
-                        Log.e(TAG, "onSugarHolderCreated -> " + ((BarHolder) owner).getData().getText());
+                        Log.e(TAG, "onSugarHolderCreated -> " + ((BarHolder) owner).getItemViewType());
                     }
 
                     @OnLifecycleEvent(Lifecycle.Event.ON_START)
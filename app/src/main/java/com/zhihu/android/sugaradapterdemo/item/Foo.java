@@ -18,6 +18,8 @@ package com.zhihu.android.sugaradapterdemo.item;
 
 import androidx.annotation.NonNull;
 
+import com.zhihu.android.sugaradapter.ItemId;
+
 public final class Foo {
     private String mText;
 
@@ -25,8 +27,20 @@ public final class Foo {
         mText = text;
     }
 
+    @ItemId
     @NonNull
     public String getText() {
         return mText;
     }
+
+    // no @Diffable, so submitList() compares contents by equals()
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Foo && mText.equals(((Foo) o).mText);
+    }
+
+    @Override
+    public int hashCode() {
+        return mText.hashCode();
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// index of a module generated by SugarProcessor,
+// the main project merges all indexes on its classpath into one ContainerDelegateImpl
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SugarModule {
+    String PACKAGE = "com.zhihu.android.sugaradapter.modules";
+
+    String name();
+
+    // ordered by view type
+    Holder[] holders();
+
+    @Retention(RetentionPolicy.CLASS)
+    @Target({})
+    @interface Holder {
+        String holderClass();
+
+        String dataClass();
+
+        // e.g. "com.foo.R.layout.bar"
+        String layoutRes();
+
+        // empty if inflate from XML
+        String layoutFactory() default "";
+
+        // empty if no @Id
+        String injectDelegate() default "";
+
+        // empty if data class has no @ItemId
+        String itemIdExtractor() default "";
+
+        // empty if data class has no @Diffable
+        String changeComparator() default "";
+
+        boolean holderFactory() default false;
+    }
+}
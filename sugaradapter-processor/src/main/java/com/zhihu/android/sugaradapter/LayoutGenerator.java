@@ -0,0 +1,658 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// generate Java code which builds the same view tree as layout XML,
+// only a small subset of XML is supported, otherwise fallback to LayoutInflater
+class LayoutGenerator {
+    private static final String NAMESPACE_ANDROID = "http://schemas.android.com/apk/res/android";
+    private static final String NAMESPACE_TOOLS = "http://schemas.android.com/tools";
+    private static final String NAMESPACE_XMLNS = "http://www.w3.org/2000/xmlns/";
+
+    private static final String VIEW_CLASS = "android.view.View";
+    private static final String VIEW_GROUP_CLASS = "android.view.ViewGroup";
+    private static final String CONTEXT_CLASS = "android.content.Context";
+    private static final String TEXT_VIEW_CLASS = "android.widget.TextView";
+    private static final String IMAGE_VIEW_CLASS = "android.widget.ImageView";
+    private static final String LINEAR_LAYOUT_CLASS = "android.widget.LinearLayout";
+    private static final String FRAME_LAYOUT_CLASS = "android.widget.FrameLayout";
+    private static final String RECYCLER_VIEW_LAYOUT_PARAMS = "androidx.recyclerview.widget.RecyclerView.LayoutParams";
+
+    // same order as PhoneLayoutInflater
+    private static final String[] CLASS_PREFIXES = {"android.widget.", "android.webkit.", "android.app.", "android.view."};
+
+    // AppCompatViewInflater replaces these tags, so we can't create them directly
+    private static final Set<String> APPCOMPAT_TAGS = new HashSet<>(Arrays.asList(
+            "TextView", "ImageView", "Button", "EditText", "Spinner", "ImageButton", "CheckBox", "RadioButton",
+            "CheckedTextView", "AutoCompleteTextView", "MultiAutoCompleteTextView", "RatingBar", "SeekBar",
+            "ToggleButton"
+    ));
+
+    private static final Pattern DIMENSION_PATTERN = Pattern.compile("(-?\\d+(?:\\.\\d+)?)(px|dp|dip|sp)");
+    private static final Pattern COLOR_PATTERN = Pattern.compile("#([0-9a-fA-F]{6}|[0-9a-fA-F]{8})");
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("@\\+?(android:)?(\\w+)/(\\w+)");
+    private static final Pattern ATTR_PATTERN = Pattern.compile("\\?(android:)?(?:attr/)?(\\w+)");
+    private static final Pattern TEXT_PATTERN = Pattern.compile("[^\\\\\"'@?<>&\\s](?:[^\\\\\"'<>&\\s]| (?! ))*");
+
+    private static class UnsupportedLayoutException extends Exception {
+        UnsupportedLayoutException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    private ProcessingEnvironment mProcessingEnv;
+    private List<File> mResDirs;
+    private Map<String, String> mFactoryClassMap;
+
+    // for current generating layout
+    private String mRClass;
+    private int mViewCount;
+    private boolean mAttrUsed;
+
+    LayoutGenerator(@NonNull ProcessingEnvironment processingEnv, @NonNull String resDirs) {
+        mProcessingEnv = processingEnv;
+        mResDirs = new ArrayList<>();
+        mFactoryClassMap = new HashMap<>();
+
+        for (String resDir : resDirs.split(",")) {
+            if (resDir.trim().length() > 0) {
+                mResDirs.add(new File(resDir.trim()));
+            }
+        }
+    }
+
+    // return qualified name of generated LayoutFactory, or null if fallback to XML
+    @Nullable
+    String generate(@NonNull String layoutResStr, @NonNull Element originatingElement) {
+        if (!mFactoryClassMap.containsKey(layoutResStr)) {
+            String factoryClass = null;
+            try {
+                factoryClass = generateLayoutFactoryImpl(layoutResStr, originatingElement);
+            } catch (@NonNull UnsupportedLayoutException e) {
+                mProcessingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "SugarAdapter: inflate " + layoutResStr + " from XML, " + e.getMessage());
+            }
+
+            mFactoryClassMap.put(layoutResStr, factoryClass);
+        }
+
+        return mFactoryClassMap.get(layoutResStr);
+    }
+
+    @NonNull
+    private String generateLayoutFactoryImpl(
+            @NonNull String layoutResStr, @NonNull Element originatingElement) throws UnsupportedLayoutException {
+        int index = layoutResStr.lastIndexOf(".layout.");
+        if (index < 0) {
+            throw new UnsupportedLayoutException("unknown layout reference");
+        }
+
+        String layoutName = layoutResStr.substring(index + ".layout.".length());
+        mRClass = layoutResStr.substring(0, index);
+        if (mRClass.endsWith(".R2")) {
+            mRClass = mRClass.substring(0, mRClass.length() - 1);
+        }
+
+        mViewCount = 0;
+        mAttrUsed = false;
+
+        org.w3c.dom.Element root = parseLayout(layoutName).getDocumentElement();
+        StringBuilder body = new StringBuilder();
+        String[] rootVars = generateView(root, null, body);
+        body.append("        ").append(rootVars[0]).append(".setLayoutParams(").append(rootVars[1]).append(");\n");
+        body.append("        return ").append(rootVars[0]).append(";\n");
+
+        String packageName = mRClass.substring(0, mRClass.lastIndexOf("."));
+        String className = toCamelCase(layoutName) + "$LayoutFactoryImpl";
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("package ").append(packageName).append(";\n\n");
+
+        builder.append("import android.annotation.SuppressLint;\n");
+        builder.append("import android.content.Context;\n");
+        builder.append("import android.util.TypedValue;\n");
+        builder.append("import android.view.View;\n");
+        builder.append("import android.view.ViewGroup;\n");
+        builder.append("import androidx.annotation.NonNull;\n\n");
+
+        builder.append("import com.zhihu.android.sugaradapter.LayoutFactory;\n\n");
+
+        builder.append("// generated from layout/").append(layoutName).append(".xml\n");
+        builder.append("public final class ").append(className).append(" implements LayoutFactory {\n");
+        builder.append("    @Override\n");
+        builder.append("    @SuppressLint(\"ResourceType\")\n");
+        builder.append("    @NonNull\n");
+        builder.append("    public View create(@NonNull ViewGroup parent) {\n");
+        builder.append("        Context context = parent.getContext();\n");
+        builder.append(body);
+        builder.append("    }\n\n");
+
+        // same as TypedValue#complexToDimensionPixelSize
+        builder.append("    private static int px(@NonNull Context context, int unit, float value) {\n");
+        builder.append("        float f = TypedValue.applyDimension(unit, value, context.getResources().getDisplayMetrics());\n");
+        builder.append("        int res = (int) (f >= 0 ? f + 0.5F : f - 0.5F);\n");
+        builder.append("        if (res != 0 || value == 0) {\n");
+        builder.append("            return res;\n");
+        builder.append("        }\n");
+        builder.append("        return value > 0 ? 1 : -1;\n");
+        builder.append("    }\n");
+
+        if (mAttrUsed) {
+            builder.append("\n");
+            builder.append("    private static void setBackgroundAttr(@NonNull View view, int attr) {\n");
+            builder.append("        TypedValue value = new TypedValue();\n");
+            builder.append("        if (!view.getContext().getTheme().resolveAttribute(attr, value, true)) {\n");
+            builder.append("            return;\n");
+            builder.append("        }\n");
+            builder.append("        if (value.resourceId != 0) {\n");
+            builder.append("            view.setBackgroundResource(value.resourceId);\n");
+            builder.append("        } else if (value.type >= TypedValue.TYPE_FIRST_COLOR_INT\n");
+            builder.append("                && value.type <= TypedValue.TYPE_LAST_COLOR_INT) {\n");
+            builder.append("            view.setBackgroundColor(value.data);\n");
+            builder.append("        }\n");
+            builder.append("    }\n");
+        }
+
+        builder.append("}\n");
+
+        try {
+            JavaFileObject object = mProcessingEnv.getFiler()
+                    .createSourceFile(packageName + "." + className, originatingElement);
+            Writer writer = object.openWriter();
+            writer.write(builder.toString());
+            writer.flush();
+            writer.close();
+        } catch (@NonNull Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        return packageName + "." + className;
+    }
+
+    @NonNull
+    private Document parseLayout(@NonNull String layoutName) throws UnsupportedLayoutException {
+        File layoutFile = null;
+        for (File resDir : mResDirs) {
+            File[] dirs = resDir.listFiles();
+            if (dirs == null) {
+                continue;
+            }
+
+            for (File dir : dirs) {
+                File file = new File(dir, layoutName + ".xml");
+                if (!dir.getName().startsWith("layout") || !file.isFile()) {
+                    continue;
+                }
+
+                // resolved by configuration or source set at runtime
+                if (!dir.getName().equals("layout") || layoutFile != null) {
+                    throw new UnsupportedLayoutException("has alternative resources");
+                }
+
+                layoutFile = file;
+            }
+        }
+
+        if (layoutFile == null) {
+            throw new UnsupportedLayoutException("XML not found in " + mResDirs);
+        }
+
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(layoutFile);
+        } catch (@NonNull Exception e) {
+            throw new UnsupportedLayoutException("parse failed, " + e.getMessage());
+        }
+    }
+
+    // return {view variable, layout params variable}
+    @NonNull
+    private String[] generateView(
+            @NonNull org.w3c.dom.Element node, @Nullable String parentClass, @NonNull StringBuilder body
+    ) throws UnsupportedLayoutException {
+        String viewClass = resolveViewClass(node.getTagName());
+        String lpClass = resolveLayoutParamsClass(parentClass);
+        String v = "v" + mViewCount;
+        String lp = "lp" + mViewCount;
+        mViewCount++;
+
+        Map<String, String> attrs = new LinkedHashMap<>();
+        NamedNodeMap attrNodes = node.getAttributes();
+        for (int i = 0; i < attrNodes.getLength(); i++) {
+            Attr attr = (Attr) attrNodes.item(i);
+            String namespace = attr.getNamespaceURI();
+            if (NAMESPACE_XMLNS.equals(namespace) || NAMESPACE_TOOLS.equals(namespace)) {
+                continue;
+            }
+
+            if (!NAMESPACE_ANDROID.equals(namespace)) {
+                throw new UnsupportedLayoutException("unsupported attribute " + attr.getName());
+            }
+
+            attrs.put(attr.getLocalName(), attr.getValue());
+        }
+
+        String width = attrs.remove("layout_width");
+        String height = attrs.remove("layout_height");
+        if (width == null || height == null) {
+            throw new UnsupportedLayoutException("missing layout_width or layout_height");
+        }
+
+        body.append("        ").append(viewClass).append(" ").append(v)
+                .append(" = new ").append(viewClass).append("(context);\n");
+        body.append("        ").append(lpClass).append(" ").append(lp).append(" = new ").append(lpClass).append("(")
+                .append(layoutDimension(width)).append(", ").append(layoutDimension(height)).append(");\n");
+
+        // background may change padding, so set it first
+        String background = attrs.remove("background");
+        if (background != null) {
+            generateBackground(v, background, body);
+        }
+
+        generateBox(v + ".setPadding(", ");\n", v + ".getPadding", "padding", attrs, body);
+        generateBox(null, null, lp, "layout_margin", attrs, body);
+
+        for (Map.Entry<String, String> entry : attrs.entrySet()) {
+            generateAttribute(viewClass, lpClass, v, lp, entry.getKey(), entry.getValue(), body);
+        }
+
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (!(child instanceof org.w3c.dom.Element)) {
+                continue;
+            }
+
+            if (!isSubtype(viewClass, VIEW_GROUP_CLASS)) {
+                throw new UnsupportedLayoutException(viewClass + " is not a ViewGroup");
+            }
+
+            String[] childVars = generateView((org.w3c.dom.Element) child, viewClass, body);
+            body.append("        ").append(v).append(".addView(")
+                    .append(childVars[0]).append(", ").append(childVars[1]).append(");\n");
+        }
+
+        return new String[]{v, lp};
+    }
+
+    // padding and margin, the whole one overrides the others as XML does
+    private void generateBox(
+            @Nullable String prefix, @Nullable String suffix, @NonNull String getter, @NonNull String name,
+            @NonNull Map<String, String> attrs, @NonNull StringBuilder body
+    ) throws UnsupportedLayoutException {
+        String all = attrs.remove(name);
+        String[] sides = {"Left", "Top", "Right", "Bottom"};
+        String[] values = new String[sides.length];
+        boolean present = all != null;
+        for (int i = 0; i < sides.length; i++) {
+            String value = attrs.remove(name + sides[i]);
+            values[i] = all != null ? all : value;
+            present |= value != null;
+        }
+
+        if (!present) {
+            return;
+        }
+
+        if (prefix == null) {
+            // margin of MarginLayoutParams
+            for (int i = 0; i < sides.length; i++) {
+                if (values[i] != null) {
+                    body.append("        ").append(getter).append(".").append(sides[i].toLowerCase())
+                            .append("Margin = ").append(dimension(values[i])).append(";\n");
+                }
+            }
+            return;
+        }
+
+        body.append("        ").append(prefix);
+        for (int i = 0; i < sides.length; i++) {
+            body.append(i > 0 ? ", " : "");
+            body.append(values[i] != null ? dimension(values[i]) : getter + sides[i] + "()");
+        }
+        body.append(suffix);
+    }
+
+    private void generateBackground(
+            @NonNull String v, @NonNull String value, @NonNull StringBuilder body
+    ) throws UnsupportedLayoutException {
+        Matcher color = COLOR_PATTERN.matcher(value);
+        Matcher attr = ATTR_PATTERN.matcher(value);
+        if (color.matches()) {
+            body.append("        ").append(v).append(".setBackgroundColor(").append(color(color)).append(");\n");
+        } else if (attr.matches()) {
+            mAttrUsed = true;
+            String rClass = attr.group(1) != null ? "android.R" : mRClass;
+            body.append("        setBackgroundAttr(").append(v).append(", ")
+                    .append(rClass).append(".attr.").append(attr.group(2)).append(");\n");
+        } else {
+            body.append("        ").append(v).append(".setBackgroundResource(")
+                    .append(reference(value, "drawable", "color", "mipmap")).append(");\n");
+        }
+    }
+
+    private void generateAttribute(
+            @NonNull String viewClass, @NonNull String lpClass, @NonNull String v, @NonNull String lp,
+            @NonNull String name, @NonNull String value, @NonNull StringBuilder body
+    ) throws UnsupportedLayoutException {
+        String statement;
+        switch (name) {
+            case "id":
+                statement = v + ".setId(" + reference(value, "id") + ")";
+                break;
+            case "visibility":
+                statement = v + ".setVisibility(View." + enumValue(value, "visible", "invisible", "gone") + ")";
+                break;
+            case "clickable":
+                statement = v + ".setClickable(" + booleanValue(value) + ")";
+                break;
+            case "focusable":
+                statement = v + ".setFocusable(" + booleanValue(value) + ")";
+                break;
+            case "minHeight":
+                statement = v + ".setMinimumHeight(" + dimension(value) + ")";
+                break;
+            case "minWidth":
+                statement = v + ".setMinimumWidth(" + dimension(value) + ")";
+                break;
+            case "contentDescription":
+                statement = v + ".setContentDescription(" + text(value, true) + ")";
+                break;
+            case "layout_gravity":
+                requireSubtype(lpClass, LINEAR_LAYOUT_CLASS + ".LayoutParams", FRAME_LAYOUT_CLASS + ".LayoutParams");
+                statement = lp + ".gravity = " + gravity(value);
+                break;
+            case "layout_weight":
+                requireSubtype(lpClass, LINEAR_LAYOUT_CLASS + ".LayoutParams");
+                statement = lp + ".weight = " + floatValue(value) + "F";
+                break;
+            case "orientation":
+                requireSubtype(viewClass, LINEAR_LAYOUT_CLASS);
+                statement = v + ".setOrientation(android.widget.LinearLayout."
+                        + enumValue(value, "horizontal", "vertical") + ")";
+                break;
+            case "gravity":
+                requireSubtype(viewClass, LINEAR_LAYOUT_CLASS, TEXT_VIEW_CLASS);
+                statement = v + ".setGravity(" + gravity(value) + ")";
+                break;
+            case "text":
+                requireSubtype(viewClass, TEXT_VIEW_CLASS);
+                statement = v + ".setText(" + text(value, false) + ")";
+                break;
+            case "textSize":
+                requireSubtype(viewClass, TEXT_VIEW_CLASS);
+                statement = v + ".setTextSize(TypedValue.COMPLEX_UNIT_PX, " + dimension(value) + ")";
+                break;
+            case "textColor":
+                requireSubtype(viewClass, TEXT_VIEW_CLASS);
+                Matcher color = COLOR_PATTERN.matcher(value);
+                if (color.matches()) {
+                    statement = v + ".setTextColor(" + color(color) + ")";
+                } else {
+                    statement = v + ".setTextColor(androidx.core.content.ContextCompat.getColorStateList(context, "
+                            + reference(value, "color") + "))";
+                }
+                break;
+            case "maxLines":
+                requireSubtype(viewClass, TEXT_VIEW_CLASS);
+                statement = v + ".setMaxLines(" + intValue(value) + ")";
+                break;
+            case "src":
+                requireSubtype(viewClass, IMAGE_VIEW_CLASS);
+                statement = v + ".setImageResource(" + reference(value, "drawable", "mipmap") + ")";
+                break;
+            default:
+                throw new UnsupportedLayoutException("unsupported attribute android:" + name);
+        }
+
+        body.append("        ").append(statement).append(";\n");
+    }
+
+    @NonNull
+    private String resolveViewClass(@NonNull String tag) throws UnsupportedLayoutException {
+        List<String> candidates = new ArrayList<>();
+        if (tag.contains(".")) {
+            candidates.add(tag);
+        } else if (!APPCOMPAT_TAGS.contains(tag) && !tag.equals("ViewStub")) {
+            for (String prefix : CLASS_PREFIXES) {
+                candidates.add(prefix + tag);
+            }
+        }
+
+        for (String candidate : candidates) {
+            TypeElement element = mProcessingEnv.getElementUtils().getTypeElement(candidate);
+            if (element == null) {
+                continue;
+            }
+
+            if (!isSubtype(candidate, VIEW_CLASS) || candidate.equals("android.view.ViewStub")
+                    || element.getModifiers().contains(Modifier.ABSTRACT)
+                    || !element.getModifiers().contains(Modifier.PUBLIC)) {
+                break;
+            }
+
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (constructor.getModifiers().contains(Modifier.PUBLIC)
+                        && constructor.getParameters().size() == 1
+                        && constructor.getParameters().get(0).asType().toString().equals(CONTEXT_CLASS)) {
+                    return candidate;
+                }
+            }
+
+            break;
+        }
+
+        throw new UnsupportedLayoutException("unsupported tag <" + tag + ">");
+    }
+
+    @NonNull
+    private String resolveLayoutParamsClass(@Nullable String parentClass) throws UnsupportedLayoutException {
+        if (parentClass == null) {
+            return RECYCLER_VIEW_LAYOUT_PARAMS;
+        } else if (isSubtype(parentClass, LINEAR_LAYOUT_CLASS)) {
+            return LINEAR_LAYOUT_CLASS + ".LayoutParams";
+        } else if (isSubtype(parentClass, FRAME_LAYOUT_CLASS)) {
+            return FRAME_LAYOUT_CLASS + ".LayoutParams";
+        } else {
+            throw new UnsupportedLayoutException("unsupported parent " + parentClass);
+        }
+    }
+
+    private boolean isSubtype(@NonNull String className, @NonNull String superclassName) {
+        TypeElement element = mProcessingEnv.getElementUtils().getTypeElement(className);
+        TypeElement superElement = mProcessingEnv.getElementUtils().getTypeElement(superclassName);
+        if (element == null || superElement == null) {
+            return false;
+        }
+
+        TypeMirror type = mProcessingEnv.getTypeUtils().erasure(element.asType());
+        TypeMirror superType = mProcessingEnv.getTypeUtils().erasure(superElement.asType());
+        return mProcessingEnv.getTypeUtils().isSubtype(type, superType);
+    }
+
+    private void requireSubtype(
+            @NonNull String className, @NonNull String... superclassNames
+    ) throws UnsupportedLayoutException {
+        for (String superclassName : superclassNames) {
+            if (isSubtype(className, superclassName)) {
+                return;
+            }
+        }
+
+        throw new UnsupportedLayoutException("unsupported attribute for " + className);
+    }
+
+    @NonNull
+    private String layoutDimension(@NonNull String value) throws UnsupportedLayoutException {
+        switch (value) {
+            case "match_parent":
+            case "fill_parent":
+                return "ViewGroup.LayoutParams.MATCH_PARENT";
+            case "wrap_content":
+                return "ViewGroup.LayoutParams.WRAP_CONTENT";
+            default:
+                return dimension(value);
+        }
+    }
+
+    @NonNull
+    private String dimension(@NonNull String value) throws UnsupportedLayoutException {
+        Matcher matcher = DIMENSION_PATTERN.matcher(value);
+        if (matcher.matches()) {
+            String unit;
+            switch (matcher.group(2)) {
+                case "px":
+                    unit = "TypedValue.COMPLEX_UNIT_PX";
+                    break;
+                case "sp":
+                    unit = "TypedValue.COMPLEX_UNIT_SP";
+                    break;
+                default:
+                    unit = "TypedValue.COMPLEX_UNIT_DIP";
+                    break;
+            }
+
+            return "px(context, " + unit + ", " + floatValue(matcher.group(1)) + "F)";
+        }
+
+        return "context.getResources().getDimensionPixelSize(" + reference(value, "dimen") + ")";
+    }
+
+    @NonNull
+    private String reference(@NonNull String value, @NonNull String... types) throws UnsupportedLayoutException {
+        Matcher matcher = REFERENCE_PATTERN.matcher(value);
+        if (!matcher.matches() || !Arrays.asList(types).contains(matcher.group(2))) {
+            throw new UnsupportedLayoutException("unsupported value " + value);
+        }
+
+        String rClass = matcher.group(1) != null ? "android.R" : mRClass;
+        return rClass + "." + matcher.group(2) + "." + matcher.group(3);
+    }
+
+    @NonNull
+    private String text(@NonNull String value, boolean charSequence) throws UnsupportedLayoutException {
+        if (value.startsWith("@")) {
+            String reference = reference(value, "string");
+            return charSequence ? "context.getText(" + reference + ")" : reference;
+        }
+
+        // aapt processes escapes, quotes and whitespaces, we don't
+        if (!TEXT_PATTERN.matcher(value).matches()) {
+            throw new UnsupportedLayoutException("unsupported text " + value);
+        }
+
+        return "\"" + value + "\"";
+    }
+
+    @NonNull
+    private String color(@NonNull Matcher matcher) {
+        String hex = matcher.group(1);
+        return "0x" + (hex.length() == 6 ? "FF" + hex : hex).toUpperCase();
+    }
+
+    @NonNull
+    private String gravity(@NonNull String value) throws UnsupportedLayoutException {
+        StringBuilder builder = new StringBuilder();
+        for (String flag : value.split("\\|")) {
+            builder.append(builder.length() > 0 ? " | " : "").append("android.view.Gravity.")
+                    .append(enumValue(flag.trim(), "top", "bottom", "left", "right", "center_vertical",
+                            "fill_vertical", "center_horizontal", "fill_horizontal", "center", "fill",
+                            "start", "end"));
+        }
+
+        return builder.toString();
+    }
+
+    @NonNull
+    private String enumValue(@NonNull String value, @NonNull String... values) throws UnsupportedLayoutException {
+        if (!Arrays.asList(values).contains(value)) {
+            throw new UnsupportedLayoutException("unsupported value " + value);
+        }
+
+        return value.toUpperCase();
+    }
+
+    // e.g. @integer/weight is resolved by aapt, not here
+    private float floatValue(@NonNull String value) throws UnsupportedLayoutException {
+        try {
+            float result = Float.parseFloat(value);
+            if (Float.isNaN(result) || Float.isInfinite(result)) {
+                throw new UnsupportedLayoutException("unsupported value " + value);
+            }
+
+            return result;
+        } catch (@NonNull NumberFormatException e) {
+            throw new UnsupportedLayoutException("unsupported value " + value);
+        }
+    }
+
+    private int intValue(@NonNull String value) throws UnsupportedLayoutException {
+        try {
+            return Integer.parseInt(value);
+        } catch (@NonNull NumberFormatException e) {
+            throw new UnsupportedLayoutException("unsupported value " + value);
+        }
+    }
+
+    @NonNull
+    private String booleanValue(@NonNull String value) throws UnsupportedLayoutException {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new UnsupportedLayoutException("unsupported value " + value);
+        }
+
+        return value;
+    }
+
+    @NonNull
+    private static String toCamelCase(@NonNull String name) {
+        StringBuilder builder = new StringBuilder();
+        for (String part : name.split("_")) {
+            if (part.length() > 0) {
+                builder.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+            }
+        }
+
+        return builder.toString();
+    }
+}
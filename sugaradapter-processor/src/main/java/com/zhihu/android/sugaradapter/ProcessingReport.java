@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// time spent of each phase in one round, printed as a note when reportOfSugarAdapter is true
+final class ProcessingReport {
+    static final String OPTION_REPORT = "reportOfSugarAdapter";
+
+    private final ProcessingEnvironment mProcessingEnv;
+    private final String mName;
+    private final boolean mEnabled;
+    private final Map<String, Long> mTimeMap;
+    private String mPhase;
+    private long mPhaseStart;
+
+    ProcessingReport(@NonNull ProcessingEnvironment processingEnv, @NonNull String name) {
+        mProcessingEnv = processingEnv;
+        mName = name;
+        mEnabled = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_REPORT));
+        mTimeMap = new LinkedHashMap<>();
+    }
+
+    // end the previous phase and begin a new one
+    void phase(@NonNull String phase) {
+        if (!mEnabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (mPhase != null) {
+            Long time = mTimeMap.get(mPhase);
+            mTimeMap.put(mPhase, (time != null ? time : 0L) + now - mPhaseStart);
+        }
+
+        mPhase = phase;
+        mPhaseStart = now;
+    }
+
+    void print(@NonNull String summary) {
+        if (!mEnabled) {
+            return;
+        }
+
+        phase("");
+        mTimeMap.remove("");
+
+        long total = 0L;
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : mTimeMap.entrySet()) {
+            total += entry.getValue();
+            builder.append(", ").append(entry.getKey()).append(" ").append(entry.getValue() / 1000000L).append("ms");
+        }
+
+        mProcessingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "SugarAdapter: " + mName
+                + " " + total / 1000000L + "ms" + builder + " (" + summary + ")");
+        mTimeMap.clear();
+        mPhase = null;
+    }
+}
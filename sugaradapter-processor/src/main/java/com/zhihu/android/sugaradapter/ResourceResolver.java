@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.hendraanggrian.RParser;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import java.util.*;
+
+// resolve @Layout and @Id values to R fields, e.g. "com.foo.R.layout.bar",
+// one RParser scan per round is shared by SugarProcessor and SugarInjectProcessor
+final class ResourceResolver {
+    // RoundEnvironment doesn't override equals(), so it's an identity key
+    private static final Map<RoundEnvironment, ResourceResolver> sResolverMap = new WeakHashMap<>();
+
+    private final ProcessingEnvironment mProcessingEnv;
+    private final RParser mParser;
+    private final Map<String, String> mResultMap;
+    private int mRequestCount;
+
+    private ResourceResolver(@NonNull ProcessingEnvironment processingEnv, @NonNull RoundEnvironment roundEnv) {
+        mProcessingEnv = processingEnv;
+        mParser = RParser.builder(processingEnv)
+                .setSupportedAnnotations(Arrays.asList(Layout.class, Id.class))
+                .setSupportedTypes("layout", "id")
+                .build();
+        mParser.scan(roundEnv);
+        mResultMap = new HashMap<>();
+    }
+
+    @NonNull
+    static synchronized ResourceResolver of(
+            @NonNull ProcessingEnvironment processingEnv, @NonNull RoundEnvironment roundEnv) {
+        ResourceResolver resolver = sResolverMap.get(roundEnv);
+        if (resolver == null) {
+            resolver = new ResourceResolver(processingEnv, roundEnv);
+            sResolverMap.put(roundEnv, resolver);
+        }
+
+        return resolver;
+    }
+
+    // return null if not found in R of element's package and its parent packages
+    @Nullable
+    synchronized String resolve(@NonNull Element element, int res) {
+        String packageName = mProcessingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        String key = packageName + ":" + res;
+        mRequestCount++;
+        if (mResultMap.containsKey(key)) {
+            return mResultMap.get(key);
+        }
+
+        String result = null;
+        String prefix = null;
+        for (String path : packageName.split("\\.")) {
+            prefix = prefix == null ? path : prefix + "." + path;
+            String str = mParser.parse(prefix, res);
+            if (!str.equals(String.valueOf(res))) {
+                result = str;
+                break;
+            }
+        }
+
+        mResultMap.put(key, result);
+        return result;
+    }
+
+    // for timing report
+    @NonNull
+    synchronized String getStatistics() {
+        return mRequestCount + " resource lookups, " + (mRequestCount - mResultMap.size()) + " memoized";
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.NoType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+// generate XxxHolder$InjectDelegateImpl for each @Layout holder,
+// isolating for Gradle incremental compile, it only reads the holder and its superclasses
+@SupportedAnnotationTypes(SugarProcessor.ANNOTATION_TYPE_LAYOUT)
+@SupportedOptions(ProcessingReport.OPTION_REPORT)
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class SugarInjectProcessor extends AbstractProcessor {
+    private ProcessingReport mReport;
+
+    @Override
+    public synchronized void init(@NonNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mReport = new ProcessingReport(processingEnv, "SugarInjectProcessor");
+    }
+
+    @Override
+    public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment roundEnv) {
+        mReport.phase("scan");
+        ResourceResolver resolver = ResourceResolver.of(processingEnv, roundEnv);
+
+        int count = 0;
+        for (Element element : roundEnv.getElementsAnnotatedWith(Layout.class)) {
+            if (element instanceof TypeElement) {
+                mReport.phase("holder");
+                List<InjectInfo> infoList = collectInjectInfo((TypeElement) element, resolver,
+                        processingEnv.getMessager());
+                if (!infoList.isEmpty()) {
+                    mReport.phase("generate");
+                    generateInjectDelegateImpl((TypeElement) element, infoList);
+                    count++;
+                }
+            }
+        }
+
+        if (count > 0) {
+            mReport.print(count + " holders, " + resolver.getStatistics());
+        }
+
+        // @Layout is also processed by SugarProcessor
+        return false;
+    }
+
+    // same fields as the generated InjectDelegateImpl, so it's referenced only if generated
+    static boolean hasIdField(@NonNull TypeElement holder, @NonNull ResourceResolver resolver) {
+        return !collectInjectInfo(holder, resolver, null).isEmpty();
+    }
+
+    // binary name keeps nested holder referable, e.g. Outer$Inner$InjectDelegateImpl
+    @NonNull
+    static String getInjectDelegateClass(@NonNull Elements elements, @NonNull TypeElement holder) {
+        return elements.getBinaryName(holder) + "$InjectDelegateImpl";
+    }
+
+    // messager is null if only checking, skipped fields are reported once by SugarInjectProcessor
+    @NonNull
+    private static List<InjectInfo> collectInjectInfo(
+            @NonNull TypeElement holder, @NonNull ResourceResolver resolver, @Nullable Messager messager) {
+        String holderClass = holder.getQualifiedName().toString();
+        Map<String, InjectInfo> infoMap = new HashMap<>();
+
+        // fields of subclass hide the same name fields of superclass
+        TypeElement temp = holder;
+        while (temp != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(temp.getEnclosedElements())) {
+                Id id = field.getAnnotation(Id.class);
+                String viewName = field.getSimpleName().toString();
+                if (id == null || infoMap.containsKey(viewName)) {
+                    continue;
+                }
+
+                String declaringClass = temp.getQualifiedName().toString();
+                String viewIdStr = id.value() != 0 ? resolver.resolve(temp, id.value()) : null;
+                if (viewIdStr == null && temp == holder) {
+                    throw new IllegalStateException("process " + holderClass + " failed!");
+                } else if (viewIdStr == null) {
+                    // superclass from classpath, R of other module can't be resolved
+                    if (messager != null) {
+                        messager.printMessage(Diagnostic.Kind.WARNING,
+                                "SugarAdapter: skip @Id " + declaringClass + "." + viewName + " for " + holderClass);
+                    }
+                    continue;
+                }
+
+                infoMap.put(viewName, new InjectInfo(viewName, field.asType().toString(), viewIdStr));
+            }
+
+            temp = getSuperclass(temp);
+        }
+
+        // sorted by field name, so the generated code is stable
+        List<InjectInfo> infoList = new ArrayList<>(infoMap.values());
+        infoList.sort(Comparator.comparing(InjectInfo::getViewName));
+        return infoList;
+    }
+
+    @Nullable
+    static TypeElement getSuperclass(@NonNull TypeElement element) {
+        TypeMirror mirror = element.getSuperclass();
+        if (mirror == null || mirror instanceof NoType) {
+            return null;
+        }
+
+        return (TypeElement) ((DeclaredType) mirror).asElement();
+    }
+
+    private void generateInjectDelegateImpl(@NonNull TypeElement holder, @NonNull List<InjectInfo> infoList) {
+        String holderClass = holder.getQualifiedName().toString();
+        String packageName = processingEnv.getElementUtils().getPackageOf(holder).getQualifiedName().toString();
+        String delegateClass = getInjectDelegateClass(processingEnv.getElementUtils(), holder);
+        String className = packageName.isEmpty() ? delegateClass : delegateClass.substring(packageName.length() + 1);
+
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+
+        builder.append("import android.annotation.SuppressLint;\n");
+        builder.append("import android.view.View;\n");
+        builder.append("import android.view.ViewGroup;\n");
+        builder.append("import androidx.annotation.NonNull;\n\n");
+
+        builder.append("import com.zhihu.android.sugaradapter.InjectDelegate;\n");
+        builder.append("import com.zhihu.android.sugaradapter.SugarHolder;\n\n");
+
+        builder.append("public final class ").append(className).append(" implements InjectDelegate {\n");
+        builder.append("    private static final int[] IDS = {\n");
+        for (InjectInfo info : infoList) {
+            builder.append("            ").append(info.getViewIdStr()).append(",\n");
+        }
+        builder.append("    };\n\n");
+
+        // find all views in one depth-first walk, same order as findViewById()
+        builder.append("    @Override\n");
+        builder.append("    @SuppressLint(\"ResourceType\")\n");
+        builder.append("    public <SH extends SugarHolder> void injectView(@NonNull SH sh, @NonNull View view) {\n");
+        builder.append("        if (sh instanceof ").append(holderClass).append(") {\n");
+        builder.append("            ").append(holderClass).append(" th = (").append(holderClass).append(") sh;\n");
+        builder.append("            View[] views = new View[IDS.length];\n");
+        builder.append("            findViews(view, views, IDS.length);\n");
+
+        for (int i = 0; i < infoList.size(); i++) {
+            InjectInfo info = infoList.get(i);
+            builder.append("            th.").append(info.getViewName())
+                    .append(" = (").append(info.getViewType()).append(")")
+                    .append(" views[").append(i).append("];\n");
+        }
+
+        builder.append("        }\n");
+        builder.append("    }\n\n");
+
+        // return the count of ids not found yet
+        builder.append("    private static int findViews(@NonNull View view, @NonNull View[] views, int remain) {\n");
+        builder.append("        int id = view.getId();\n");
+        builder.append("        if (id != View.NO_ID) {\n");
+        builder.append("            for (int i = 0; i < IDS.length; i++) {\n");
+        builder.append("                if (IDS[i] == id && views[i] == null) {\n");
+        builder.append("                    views[i] = view;\n");
+        builder.append("                    remain--;\n");
+        builder.append("                }\n");
+        builder.append("            }\n");
+        builder.append("        }\n\n");
+        builder.append("        if (view instanceof ViewGroup) {\n");
+        builder.append("            ViewGroup group = (ViewGroup) view;\n");
+        builder.append("            for (int i = 0; i < group.getChildCount() && remain > 0; i++) {\n");
+        builder.append("                remain = findViews(group.getChildAt(i), views, remain);\n");
+        builder.append("            }\n");
+        builder.append("        }\n\n");
+        builder.append("        return remain;\n");
+        builder.append("    }\n");
+        builder.append("}\n");
+
+        try {
+            // the only originating element, required by isolating processor
+            JavaFileObject object = processingEnv.getFiler().createSourceFile(delegateClass, holder);
+            Writer writer = object.openWriter();
+            writer.write(builder.toString());
+            writer.flush();
+            writer.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+// generate XxxData$ItemIdExtractorImpl for each data class with @ItemId,
+// and XxxData$ChangeComparatorImpl for each data class with @Diffable,
+// isolating for Gradle incremental compile, it only reads the data class and its superclasses
+@SupportedAnnotationTypes({SugarItemProcessor.ANNOTATION_TYPE_ITEM_ID, SugarItemProcessor.ANNOTATION_TYPE_DIFFABLE})
+@SupportedOptions(ProcessingReport.OPTION_REPORT)
+@SupportedSourceVersion(SourceVersion.RELEASE_8)
+public class SugarItemProcessor extends AbstractProcessor {
+    static final String ANNOTATION_TYPE_ITEM_ID = "com.zhihu.android.sugaradapter.ItemId";
+    static final String ANNOTATION_TYPE_DIFFABLE = "com.zhihu.android.sugaradapter.Diffable";
+
+    // ChangeSet is a long mask
+    private static final int MAX_DIFFABLE_COUNT = 64;
+
+    private ProcessingReport mReport;
+
+    @Override
+    public synchronized void init(@NonNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mReport = new ProcessingReport(processingEnv, "SugarItemProcessor");
+    }
+
+    @Override
+    public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment roundEnv) {
+        mReport.phase("scan");
+
+        // sorted by data class name, so the generated code is stable
+        Map<String, Element> itemIdMap = new TreeMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(ItemId.class)) {
+            TypeElement data = (TypeElement) element.getEnclosingElement();
+            String dataClass = data.getQualifiedName().toString();
+            if (itemIdMap.put(dataClass, element) != null) {
+                throw new IllegalStateException("more than one @ItemId in " + dataClass + "!");
+            }
+        }
+
+        Map<String, TypeElement> diffableMap = new TreeMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Diffable.class)) {
+            TypeElement data = (TypeElement) element.getEnclosingElement();
+            diffableMap.put(data.getQualifiedName().toString(), data);
+        }
+
+        mReport.phase("generate");
+        for (Element element : itemIdMap.values()) {
+            generateItemIdExtractorImpl((TypeElement) element.getEnclosingElement(), element);
+        }
+
+        for (TypeElement data : diffableMap.values()) {
+            generateChangeComparatorImpl(data);
+        }
+
+        if (!itemIdMap.isEmpty() || !diffableMap.isEmpty()) {
+            mReport.print(itemIdMap.size() + " @ItemId, " + diffableMap.size() + " @Diffable data classes");
+        }
+
+        return true;
+    }
+
+    // the nearest class declares @ItemId in data class and its superclasses
+    @Nullable
+    static String getItemIdExtractorClass(@NonNull Elements elements, @NonNull TypeElement data) {
+        TypeElement temp = data;
+        while (temp != null) {
+            for (Element element : temp.getEnclosedElements()) {
+                if (element.getAnnotation(ItemId.class) != null) {
+                    return elements.getBinaryName(temp) + "$ItemIdExtractorImpl";
+                }
+            }
+
+            temp = SugarInjectProcessor.getSuperclass(temp);
+        }
+
+        return null;
+    }
+
+    // the nearest class declares @Diffable in data class and its superclasses,
+    // null if a subclass before it declares fields, which that comparator never compares
+    @Nullable
+    static String getChangeComparatorClass(@NonNull Elements elements, @NonNull TypeElement data) {
+        TypeElement temp = data;
+        while (temp != null) {
+            for (Element element : temp.getEnclosedElements()) {
+                if (element.getAnnotation(Diffable.class) != null) {
+                    return elements.getBinaryName(temp) + "$ChangeComparatorImpl";
+                }
+            }
+
+            for (Element field : ElementFilter.fieldsIn(temp.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                    return null;
+                }
+            }
+
+            temp = SugarInjectProcessor.getSuperclass(temp);
+        }
+
+        return null;
+    }
+
+    // e.g. "count" or "getCount()"
+    @NonNull
+    private static String getMemberAccess(@NonNull TypeElement data, @NonNull Element element, @NonNull String tag) {
+        String member = element.getSimpleName().toString();
+        String error = tag + " " + data.getQualifiedName() + "." + member;
+        if (element.getModifiers().contains(Modifier.PRIVATE) || element.getModifiers().contains(Modifier.STATIC)) {
+            throw new IllegalStateException(error + " must be non-private and non-static!");
+        }
+
+        if (element.getKind() == ElementKind.METHOD) {
+            if (!((ExecutableElement) element).getParameters().isEmpty()) {
+                throw new IllegalStateException(error + " must have no parameter!");
+            }
+
+            return member + "()";
+        }
+
+        return member;
+    }
+
+    @NonNull
+    private static TypeMirror getMemberType(@NonNull Element element) {
+        if (element.getKind() == ElementKind.METHOD) {
+            return ((ExecutableElement) element).getReturnType();
+        }
+
+        return element.asType();
+    }
+
+    // mLikeCount, getLikeCount() and isLiked() are named as likeCount and liked
+    @NonNull
+    static String getPropertyName(@NonNull Element element) {
+        String name = element.getSimpleName().toString();
+        for (String prefix : element.getKind() == ElementKind.METHOD
+                ? new String[]{"get", "is"} : new String[]{"m"}) {
+            if (name.length() > prefix.length() && name.startsWith(prefix)
+                    && Character.isUpperCase(name.charAt(prefix.length()))) {
+                name = name.substring(prefix.length());
+                return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+            }
+        }
+
+        return name;
+    }
+
+    @NonNull
+    private String getItemIdExpression(@NonNull TypeElement data, @NonNull Element element) {
+        String member = getMemberAccess(data, element, "@ItemId");
+        TypeMirror type = getMemberType(element);
+        switch (type.getKind()) {
+            case LONG:
+            case INT:
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return "data." + member;
+            case DECLARED:
+                TypeMirror number = processingEnv.getElementUtils().getTypeElement(Number.class.getName()).asType();
+                if (processingEnv.getTypeUtils().isAssignable(type, number)) {
+                    return "ItemIdExtractor.of(data." + member + ")";
+                }
+
+                // CharSequence or Object#toString()
+                return "ItemIdExtractor.hash(data." + member + ")";
+            default:
+                throw new IllegalStateException("@ItemId " + data.getQualifiedName() + "." + member
+                        + " of " + type + " is not supported!");
+        }
+    }
+
+    private void generateItemIdExtractorImpl(@NonNull TypeElement data, @NonNull Element element) {
+        String dataClass = processingEnv.getTypeUtils().erasure(data.asType()).toString();
+        String packageName = processingEnv.getElementUtils().getPackageOf(data).getQualifiedName().toString();
+        String extractorClass = getItemIdExtractorClass(processingEnv.getElementUtils(), data);
+        // noinspection ConstantConditions
+        String className = packageName.isEmpty() ? extractorClass : extractorClass.substring(packageName.length() + 1);
+
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+
+        builder.append("import androidx.annotation.NonNull;\n\n");
+        builder.append("import com.zhihu.android.sugaradapter.ItemIdExtractor;\n\n");
+
+        builder.append("public final class ").append(className)
+                .append(" implements ItemIdExtractor<").append(dataClass).append("> {\n");
+        builder.append("    @Override\n");
+        builder.append("    public long getItemId(@NonNull ").append(dataClass).append(" data) {\n");
+        builder.append("        return ").append(getItemIdExpression(data, element)).append(";\n");
+        builder.append("    }\n");
+        builder.append("}\n");
+
+        try {
+            // the only originating element, required by isolating processor
+            JavaFileObject object = processingEnv.getFiler().createSourceFile(extractorClass, data);
+            Writer writer = object.openWriter();
+            writer.write(builder.toString());
+            writer.flush();
+            writer.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // @Diffable of data class and its superclasses, superclasses' first
+    @NonNull
+    private List<Element> collectDiffable(@NonNull TypeElement data) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(data).getQualifiedName().toString();
+        List<TypeElement> chain = new ArrayList<>();
+        for (TypeElement temp = data; temp != null; temp = SugarInjectProcessor.getSuperclass(temp)) {
+            chain.add(0, temp);
+        }
+
+        Map<String, Element> memberMap = new LinkedHashMap<>();
+        for (TypeElement temp : chain) {
+            String tempPackage = processingEnv.getElementUtils().getPackageOf(temp).getQualifiedName().toString();
+            for (Element element : temp.getEnclosedElements()) {
+                if (element.getAnnotation(Diffable.class) == null) {
+                    continue;
+                }
+
+                // generated class is in the package of data class
+                if (temp != data && !tempPackage.equals(packageName)
+                        && !element.getModifiers().contains(Modifier.PUBLIC)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "SugarAdapter: skip @Diffable " + temp.getQualifiedName() + "."
+                                    + element.getSimpleName() + " for " + data.getQualifiedName());
+                    continue;
+                }
+
+                // subclass overrides the same name
+                String name = getPropertyName(element);
+                memberMap.remove(name);
+                memberMap.put(name, element);
+            }
+        }
+
+        if (memberMap.size() > MAX_DIFFABLE_COUNT) {
+            throw new IllegalStateException("more than " + MAX_DIFFABLE_COUNT + " @Diffable in "
+                    + data.getQualifiedName() + "!");
+        }
+
+        return new ArrayList<>(memberMap.values());
+    }
+
+    // non-@Diffable fields of data class and its superclasses, key is the access from generated class,
+    // a private field is read by its getter, null if any field can not be read
+    @Nullable
+    private Map<String, TypeMirror> collectOthers(@NonNull TypeElement data, @NonNull Set<String> diffableNameSet) {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(data).getQualifiedName().toString();
+        List<TypeElement> chain = new ArrayList<>();
+        for (TypeElement temp = data; temp != null; temp = SugarInjectProcessor.getSuperclass(temp)) {
+            chain.add(temp);
+        }
+
+        Map<String, TypeMirror> map = new LinkedHashMap<>();
+        for (TypeElement temp : chain) {
+            for (Element field : ElementFilter.fieldsIn(temp.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                String name = getPropertyName(field);
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+                        || diffableNameSet.contains(name)) {
+                    continue;
+                }
+
+                if (isReadable(field, packageName)) {
+                    map.put(field.getSimpleName().toString(), field.asType());
+                    continue;
+                }
+
+                ExecutableElement getter = findGetter(chain, name, packageName);
+                if (getter == null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "SugarAdapter: @Diffable of " + data.getQualifiedName() + " always rebinds fully, "
+                                    + temp.getQualifiedName() + "." + field.getSimpleName()
+                                    + " has no readable getter");
+                    return null;
+                }
+
+                map.put(getter.getSimpleName() + "()", getter.getReturnType());
+            }
+        }
+
+        return map;
+    }
+
+    // generated class is in the package of data class
+    private boolean isReadable(@NonNull Element element, @NonNull String packageName) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+
+        return modifiers.contains(Modifier.PUBLIC) || processingEnv.getElementUtils()
+                .getPackageOf(element).getQualifiedName().toString().equals(packageName);
+    }
+
+    // getName(), isName() or name() of property name
+    @Nullable
+    private ExecutableElement findGetter(@NonNull List<TypeElement> chain, @NonNull String name,
+                                         @NonNull String packageName) {
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Set<String> nameSet = new HashSet<>(Arrays.asList("get" + capitalized, "is" + capitalized, name));
+        for (TypeElement temp : chain) {
+            for (ExecutableElement method : ElementFilter.methodsIn(temp.getEnclosedElements())) {
+                if (nameSet.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+                        && isReadable(method, packageName)) {
+                    return method;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @NonNull
+    private static String getChangedExpression(@NonNull TypeElement data, @NonNull String member,
+                                               @NonNull TypeMirror type) {
+        String oldValue = "oldItem." + member;
+        String newValue = "newItem." + member;
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+                return oldValue + " != " + newValue;
+            case FLOAT:
+                return "Float.compare(" + oldValue + ", " + newValue + ") != 0";
+            case DOUBLE:
+                return "Double.compare(" + oldValue + ", " + newValue + ") != 0";
+            case ARRAY:
+                return "!java.util.Arrays.equals(" + oldValue + ", " + newValue + ")";
+            case DECLARED:
+            case TYPEVAR:
+                return "!ChangeComparator.equals(" + oldValue + ", " + newValue + ")";
+            default:
+                throw new IllegalStateException("@Diffable " + data.getQualifiedName() + "." + member
+                        + " of " + type + " is not supported!");
+        }
+    }
+
+    private void generateChangeComparatorImpl(@NonNull TypeElement data) {
+        String dataClass = processingEnv.getTypeUtils().erasure(data.asType()).toString();
+        String packageName = processingEnv.getElementUtils().getPackageOf(data).getQualifiedName().toString();
+        String comparatorClass = getChangeComparatorClass(processingEnv.getElementUtils(), data);
+        // noinspection ConstantConditions
+        String className = packageName.isEmpty() ? comparatorClass : comparatorClass.substring(packageName.length() + 1);
+        List<Element> memberList = collectDiffable(data);
+
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+
+        builder.append("import androidx.annotation.NonNull;\n");
+        builder.append("import androidx.annotation.Nullable;\n\n");
+        builder.append("import com.zhihu.android.sugaradapter.ChangeComparator;\n");
+        builder.append("import com.zhihu.android.sugaradapter.ChangeSet;\n\n");
+
+        builder.append("public final class ").append(className)
+                .append(" implements ChangeComparator<").append(dataClass).append("> {\n");
+
+        // masks for ChangeSet#getMask()
+        for (int i = 0; i < memberList.size(); i++) {
+            String name = getPropertyName(memberList.get(i));
+            builder.append("    public static final long ")
+                    .append(name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.US))
+                    .append(" = 1L << ").append(i).append(";\n");
+        }
+        builder.append("\n");
+
+        builder.append("    private static final String[] NAMES = {\n");
+        for (Element element : memberList) {
+            builder.append("            \"").append(getPropertyName(element)).append("\",\n");
+        }
+        builder.append("    };\n\n");
+
+        builder.append("    @Override\n");
+        builder.append("    @Nullable\n");
+        builder.append("    public ChangeSet compare(@NonNull ").append(dataClass).append(" oldItem, @NonNull ")
+                .append(dataClass).append(" newItem) {\n");
+        builder.append("        long mask = 0L;\n");
+        Set<String> nameSet = new HashSet<>();
+        for (int i = 0; i < memberList.size(); i++) {
+            Element element = memberList.get(i);
+            String member = getMemberAccess(data, element, "@Diffable");
+            nameSet.add(getPropertyName(element));
+            builder.append("        if (").append(getChangedExpression(data, member, getMemberType(element)))
+                    .append(") {\n");
+            builder.append("            mask |= 1L << ").append(i).append(";\n");
+            builder.append("        }\n");
+        }
+
+        // ChangeSet only if nothing but @Diffable changed, otherwise full rebind,
+        // an empty one means nothing changed
+        Map<String, TypeMirror> otherMap = collectOthers(data, nameSet);
+        if (otherMap == null) {
+            builder.append("\n");
+            builder.append("        // not all fields are readable, rebind fully unless equal\n");
+            builder.append("        return mask == 0L && oldItem.equals(newItem) ? new ChangeSet(NAMES, 0L) : null;\n");
+        } else {
+            for (Map.Entry<String, TypeMirror> entry : otherMap.entrySet()) {
+                builder.append("\n");
+                builder.append("        if (").append(getChangedExpression(data, entry.getKey(), entry.getValue()))
+                        .append(") {\n");
+                builder.append("            return null;\n");
+                builder.append("        }\n");
+            }
+            builder.append("\n");
+            builder.append("        return new ChangeSet(NAMES, mask);\n");
+        }
+        builder.append("    }\n");
+        builder.append("}\n");
+
+        try {
+            // the only originating element, required by isolating processor
+            JavaFileObject object = processingEnv.getFiler().createSourceFile(comparatorClass, data);
+            Writer writer = object.openWriter();
+            writer.write(builder.toString());
+            writer.flush();
+            writer.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -16,18 +16,19 @@
 
 package com.zhihu.android.sugaradapter;
 
-import androidx.annotation.CheckResult;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import com.hendraanggrian.RParser;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.NoType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.tools.JavaFileObject;
 import java.io.IOException;
 import java.io.Writer;
@@ -35,36 +36,79 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-@SupportedAnnotationTypes({SugarProcessor.ANNOTATION_TYPE_LAYOUT, SugarProcessor.ANNOTATION_TYPE_ID})
-@SupportedOptions({SugarProcessor.OPTION_MODULE_NAME, SugarProcessor.OPTION_SUB_MODULES})
+// aggregating for Gradle incremental compile, see SugarInjectProcessor for @Id
+@SupportedAnnotationTypes(SugarProcessor.ANNOTATION_TYPE_LAYOUT)
+@SupportedOptions({
+        SugarProcessor.OPTION_MODULE_NAME,
+        SugarProcessor.OPTION_SUB_MODULES,
+        SugarProcessor.OPTION_RES_DIRS,
+        ProcessingReport.OPTION_REPORT
+})
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class SugarProcessor extends AbstractProcessor {
     static final String ANNOTATION_TYPE_LAYOUT = "com.zhihu.android.sugaradapter.Layout";
-    static final String ANNOTATION_TYPE_ID = "com.zhihu.android.sugaradapter.Id";
     static final String OPTION_MODULE_NAME = "moduleNameOfSugarAdapter";
     static final String OPTION_SUB_MODULES = "subModulesOfSugarAdapter";
+    static final String OPTION_RES_DIRS = "resDirsOfSugarAdapter";
 
     private static final Pattern TYPE_PARAM_PATTERN = Pattern.compile("(.*?)<(.*?)>");
+    private static final String VIEW_CLASS = "android.view.View";
+
+    private LayoutGenerator mLayoutGenerator;
+    private ProcessingReport mReport;
+
+    @Override
+    public synchronized void init(@NonNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        String resDirs = processingEnv.getOptions().get(OPTION_RES_DIRS);
+        if (resDirs != null && resDirs.length() > 0) {
+            mLayoutGenerator = new LayoutGenerator(processingEnv, resDirs);
+        }
+
+        mReport = new ProcessingReport(processingEnv, "SugarProcessor");
+    }
+
+    // main project aggregates modules on classpath even if it has no @Layout of its own,
+    // so it must be called without @Layout in the round
+    @Override
+    @NonNull
+    public Set<String> getSupportedAnnotationTypes() {
+        String moduleName = processingEnv.getOptions().get(OPTION_MODULE_NAME);
+        if (moduleName == null || moduleName.length() <= 0) {
+            return Collections.singleton("*");
+        }
+
+        return super.getSupportedAnnotationTypes();
+    }
 
     @Override
     public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment roundEnv) {
-        // not pure function but just work :/
-        processId(roundEnv, processLayout(roundEnv));
-        return true;
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+
+        processLayout(roundEnv);
+
+        // @Layout is also processed by SugarInjectProcessor
+        return false;
     }
 
     // <editor-fold desc="@Layout">
 
-    @CheckResult
-    private Map<String, Set<String>> processLayout(@NonNull RoundEnvironment roundEnv) {
-        RParser parser = RParser.builder(processingEnv)
-                .setSupportedAnnotations(Collections.singleton(Layout.class))
-                .setSupportedTypes("layout")
-                .build();
-        parser.scan(roundEnv);
-
-        Map<String, Pair> containerMap = new HashMap<>();
-        Map<String, Set<String>> superclassMap = new HashMap<>();
+    private void processLayout(@NonNull RoundEnvironment roundEnv) {
+        mReport.phase("scan");
+        ResourceResolver resolver = ResourceResolver.of(processingEnv, roundEnv);
+        mReport.phase("holder");
+
+        // sorted by holder class name, so the generated view type is stable
+        Map<String, Pair> containerMap = new TreeMap<>();
+        Set<String> holderFactorySet = new HashSet<>();
+        Map<String, String> layoutFactoryMap = new HashMap<>();
+        Map<String, String> injectDelegateMap = new HashMap<>();
+        Map<String, String> itemIdExtractorMap = new HashMap<>();
+        Map<String, String> changeComparatorMap = new HashMap<>();
+        List<Element> originatingList = new ArrayList<>();
         for (Element element : roundEnv.getElementsAnnotatedWith(Layout.class)) {
             if (element instanceof TypeElement) {
                 String holderClass = ((TypeElement) element).getQualifiedName().toString();
@@ -87,56 +131,74 @@ public class SugarProcessor extends AbstractProcessor {
                     throw new IllegalStateException("process " + holderClass + " failed!");
                 }
 
-                String layoutResStr = null;
-                String packageName = null;
-                for (String path : holderClass.split("\\.")) {
-                    if (packageName == null) {
-                        packageName = path;
-                    } else {
-                        packageName = packageName + "." + path;
-                    }
+                String layoutResStr = resolver.resolve(element, layoutRes);
+                if (layoutResStr == null) {
+                    throw new IllegalStateException("process " + holderClass + " failed!");
+                }
 
-                    layoutResStr = parser.parse(packageName, layoutRes);
-                    if (!layoutResStr.equals(String.valueOf(layoutRes))) {
-                        break;
-                    }
+                containerMap.put(holderClass, new Pair(layoutResStr, dataClass));
+                if (isHolderFactoryAvailable((TypeElement) element)) {
+                    holderFactorySet.add(holderClass);
                 }
 
-                if (layoutResStr == null || layoutResStr.equals(String.valueOf(layoutRes))) {
-                    throw new IllegalStateException("process " + holderClass + " failed!");
+                mReport.phase("layout");
+                String layoutFactoryClass = mLayoutGenerator != null
+                        ? mLayoutGenerator.generate(layoutResStr, element) : null;
+                if (layoutFactoryClass != null) {
+                    layoutFactoryMap.put(holderClass, layoutFactoryClass);
                 }
+                mReport.phase("holder");
 
-                containerMap.put(holderClass, new Pair(layoutResStr, dataClass));
+                // generated by SugarInjectProcessor
+                if (SugarInjectProcessor.hasIdField((TypeElement) element, resolver)) {
+                    injectDelegateMap.put(holderClass, SugarInjectProcessor.getInjectDelegateClass(
+                            processingEnv.getElementUtils(), (TypeElement) element));
+                }
 
-                // find all available superclass for next step process @Id
-                mirror = ((TypeElement) element).getSuperclass();
-                while (mirror != null && !(mirror instanceof NoType)) {
-                    TypeElement temp = ((TypeElement) processingEnv.getTypeUtils().asElement(mirror));
-                    Set<String> set = superclassMap.get(holderClass);
-                    if (set == null) {
-                        set = new HashSet<>();
-                        set.add(temp.getQualifiedName().toString());
-                        superclassMap.put(holderClass, set);
-                    } else  {
-                        set.add(temp.getQualifiedName().toString());
-                    }
+                // generated by SugarItemProcessor
+                TypeElement dataElement = processingEnv.getElementUtils().getTypeElement(dataClass);
+                String itemIdExtractorClass = dataElement != null ? SugarItemProcessor.getItemIdExtractorClass(
+                        processingEnv.getElementUtils(), dataElement) : null;
+                if (itemIdExtractorClass != null) {
+                    itemIdExtractorMap.put(holderClass, itemIdExtractorClass);
+                }
 
-                    mirror = temp.getSuperclass();
+                String changeComparatorClass = dataElement != null ? SugarItemProcessor.getChangeComparatorClass(
+                        processingEnv.getElementUtils(), dataElement) : null;
+                if (changeComparatorClass != null) {
+                    changeComparatorMap.put(holderClass, changeComparatorClass);
                 }
+
+                originatingList.add(element);
             }
         }
 
+        Element[] originatingElements = originatingList.toArray(new Element[0]);
+        mReport.phase("generate");
+
         String moduleName = processingEnv.getOptions().get(OPTION_MODULE_NAME);
         String subModules = processingEnv.getOptions().get(OPTION_SUB_MODULES);
         if (moduleName != null && moduleName.length() > 0 && !containerMap.isEmpty()) {
             try {
-                generateContainerDelegateImpl(containerMap);
+                generateContainerDelegateImpl(containerMap, holderFactorySet, layoutFactoryMap,
+                        injectDelegateMap, itemIdExtractorMap, changeComparatorMap, originatingElements);
+                generateModuleIndex(containerMap, holderFactorySet, layoutFactoryMap,
+                        injectDelegateMap, itemIdExtractorMap, changeComparatorMap, originatingElements);
             } catch (@NonNull Exception e) {
                 throw new IllegalStateException(e);
             }
-        } else if (subModules != null && subModules.length() > 0 || !containerMap.isEmpty()) {
+        } else if (moduleName == null || moduleName.length() <= 0) {
+            // holders of aggregated modules are appended after current module
+            Map<String, Pair> allMap = new LinkedHashMap<>(containerMap);
+            aggregateModules(allMap, holderFactorySet, layoutFactoryMap, injectDelegateMap,
+                    itemIdExtractorMap, changeComparatorMap);
+            if (allMap.isEmpty() && (subModules == null || subModules.length() <= 0)) {
+                return;
+            }
+
             try {
-                generateContainerDelegateImpl(containerMap);
+                generateContainerDelegateImpl(allMap, holderFactorySet, layoutFactoryMap,
+                        injectDelegateMap, itemIdExtractorMap, changeComparatorMap, originatingElements);
             } catch (@NonNull Exception e) {
                 // noinspection StatementWithEmptyBody
                 if (e instanceof FilerException) {
@@ -147,223 +209,372 @@ public class SugarProcessor extends AbstractProcessor {
             }
         }
 
-        return superclassMap;
+        if (!originatingList.isEmpty()) {
+            mReport.print(originatingList.size() + " holders, " + resolver.getStatistics());
+        }
+    }
+
+    // holder must be public, non-abstract and has a public constructor(View),
+    // otherwise SugarAdapter will fallback to reflection
+    private boolean isHolderFactoryAvailable(@NonNull TypeElement element) {
+        if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        Element temp = element;
+        while (temp instanceof TypeElement) {
+            if (!temp.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+
+            Element enclosing = temp.getEnclosingElement();
+            if (enclosing instanceof TypeElement && !temp.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+
+            temp = enclosing;
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)
+                    && constructor.getParameters().size() == 1
+                    && constructor.getParameters().get(0).asType().toString().equals(VIEW_CLASS)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private void generateContainerDelegateImpl(@NonNull Map<String, Pair> map) throws IOException {
+    private void generateContainerDelegateImpl(
+            @NonNull Map<String, Pair> map, @NonNull Set<String> holderFactorySet,
+            @NonNull Map<String, String> layoutFactoryMap, @NonNull Map<String, String> injectDelegateMap,
+            @NonNull Map<String, String> itemIdExtractorMap, @NonNull Map<String, String> changeComparatorMap,
+            @NonNull Element[] originatingElements) throws IOException {
         StringBuilder builder = new StringBuilder();
         String packageName = "com.zhihu.android.sugaradapter";
         builder.append("package ").append(packageName).append(";\n\n");
 
+        builder.append("import android.view.View;\n");
         builder.append("import androidx.annotation.LayoutRes;\n");
-        builder.append("import androidx.annotation.NonNull;\n\n");
+        builder.append("import androidx.annotation.NonNull;\n");
+        builder.append("import androidx.annotation.Nullable;\n\n");
+
+        // sub modules are loaded lazily by IndexedContainerDelegate
+        Set<String> subModuleSet = getSubModuleSet();
 
-        builder.append("import java.util.HashMap;\n");
-        builder.append("import java.util.Map;\n\n");
+        // view type is the index of holder class
+        List<String> holderList = new ArrayList<>(map.keySet());
 
         // for module project
         String className = generateClassName(processingEnv.getOptions().get(OPTION_MODULE_NAME));
-        builder.append("public final class ").append(className).append(" implements ContainerDelegate {\n");
-        builder.append("    private Map<Class<? extends SugarHolder>, Integer> mLayoutResMap;\n");
-        builder.append("    private Map<Class<? extends SugarHolder>, Class> mDataClassMap;\n\n");
-
+        builder.append("public final class ").append(className).append(" extends IndexedContainerDelegate {\n");
         builder.append("    public ").append(className).append("() {\n");
-        builder.append("        mLayoutResMap = new HashMap<>();\n");
-        builder.append("        mDataClassMap = new HashMap<>();\n");
-        if (!map.isEmpty()) {
-            builder.append("\n");
+        builder.append("        super(").append(holderList.size()).append(", ").append(subModuleSet.size()).append(");\n");
+        builder.append("    }\n\n");
+
+        builder.append("    @Override\n");
+        builder.append("    @NonNull\n");
+        builder.append("    protected Class[] createHolderClasses() {\n");
+        builder.append("        return new Class[]{\n");
+        for (String holderClass : holderList) {
+            builder.append("                ").append(holderClass).append(".class,\n");
+        }
+        builder.append("        };\n");
+        builder.append("    }\n\n");
+
+        builder.append("    @Override\n");
+        builder.append("    @LayoutRes\n");
+        builder.append("    protected int getLayoutResAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            builder.append("            case ").append(i).append(":\n");
+            builder.append("                return ").append(map.get(holderList.get(i)).getFirst()).append(";\n");
         }
+        builder.append("            default:\n");
+        builder.append("                return 0;\n");
+        builder.append("        }\n");
+        builder.append("    }\n\n");
 
-        for (String key : map.keySet()) {
-            String layoutResStr = map.get(key).getFirst();
-            String dataClass = map.get(key).getSecond();
-            builder.append("        mLayoutResMap.put(").append(key).append(".class, ")
-                    .append(layoutResStr).append(");\n");
-            builder.append("        mDataClassMap.put(").append(key).append(".class, ")
-                    .append(dataClass).append(".class);\n");
+        builder.append("    @Override\n");
+        builder.append("    @NonNull\n");
+        builder.append("    protected Class getDataClassAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            builder.append("            case ").append(i).append(":\n");
+            builder.append("                return ").append(map.get(holderList.get(i)).getSecond()).append(".class;\n");
         }
+        builder.append("            default:\n");
+        builder.append("                throw new IndexOutOfBoundsException(\"holder \" + index);\n");
+        builder.append("        }\n");
+        builder.append("    }\n\n");
 
-        // for main project
-        String subModules = processingEnv.getOptions().get(OPTION_SUB_MODULES);
-        if (subModules != null && subModules.length() > 0) {
-            for (String moduleName : subModules.split(",")) {
-                String moduleClassName = generateClassName(moduleName);
-                String moduleVariableName = moduleClassName.toLowerCase();
-                builder.append("\n");
-                builder.append("        ").append(moduleClassName).append(" ").append(moduleVariableName)
-                        .append(" = new ").append(moduleClassName).append("();")
-                        .append(" // ").append(moduleName).append("\n");
-                builder.append("        mLayoutResMap.putAll(")
-                        .append(moduleVariableName).append(".getLayoutResMap());\n");
-                builder.append("        mDataClassMap.putAll(")
-                        .append(moduleVariableName).append(".getDataClassMap());\n");
+        builder.append("    @Override\n");
+        builder.append("    @Nullable\n");
+        builder.append("    protected SugarHolder createHolderAt(int index, @NonNull View view) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            if (holderFactorySet.contains(holderList.get(i))) {
+                builder.append("            case ").append(i).append(":\n");
+                builder.append("                return new ").append(holderList.get(i)).append("(view);\n");
             }
         }
+        builder.append("            default:\n");
+        builder.append("                return null;\n");
+        builder.append("        }\n");
+        builder.append("    }\n\n");
 
+        builder.append("    @Override\n");
+        builder.append("    @Nullable\n");
+        builder.append("    protected LayoutFactory createLayoutFactoryAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            if (layoutFactoryMap.containsKey(holderList.get(i))) {
+                builder.append("            case ").append(i).append(":\n");
+                builder.append("                return new ").append(layoutFactoryMap.get(holderList.get(i))).append("();\n");
+            }
+        }
+        builder.append("            default:\n");
+        builder.append("                return null;\n");
+        builder.append("        }\n");
         builder.append("    }\n\n");
 
         builder.append("    @Override\n");
-        builder.append("    @NonNull\n");
-        builder.append("    public Map<Class<? extends SugarHolder>, Integer> getLayoutResMap() {\n");
-        builder.append("        return mLayoutResMap;\n");
+        builder.append("    @Nullable\n");
+        builder.append("    protected InjectDelegate createInjectDelegateAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            if (injectDelegateMap.containsKey(holderList.get(i))) {
+                builder.append("            case ").append(i).append(":\n");
+                builder.append("                return new ").append(injectDelegateMap.get(holderList.get(i))).append("();\n");
+            }
+        }
+        builder.append("            default:\n");
+        builder.append("                return null;\n");
+        builder.append("        }\n");
         builder.append("    }\n\n");
 
         builder.append("    @Override\n");
-        builder.append("    @NonNull\n");
-        builder.append("    public Map<Class<? extends SugarHolder>, Class> getDataClassMap() {\n");
-        builder.append("        return mDataClassMap;\n");
+        builder.append("    @Nullable\n");
+        builder.append("    protected ItemIdExtractor createItemIdExtractorAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            if (itemIdExtractorMap.containsKey(holderList.get(i))) {
+                builder.append("            case ").append(i).append(":\n");
+                builder.append("                return new ").append(itemIdExtractorMap.get(holderList.get(i))).append("();\n");
+            }
+        }
+        builder.append("            default:\n");
+        builder.append("                return null;\n");
+        builder.append("        }\n");
         builder.append("    }\n\n");
 
         builder.append("    @Override\n");
-        builder.append("    @LayoutRes\n");
-        builder.append("    public int getLayoutRes(@NonNull Class<? extends SugarHolder> holderClass) {\n");
-        builder.append("        return mLayoutResMap.get(holderClass);\n");
+        builder.append("    @Nullable\n");
+        builder.append("    protected ChangeComparator createChangeComparatorAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            if (changeComparatorMap.containsKey(holderList.get(i))) {
+                builder.append("            case ").append(i).append(":\n");
+                builder.append("                return new ").append(changeComparatorMap.get(holderList.get(i))).append("();\n");
+            }
+        }
+        builder.append("            default:\n");
+        builder.append("                return null;\n");
+        builder.append("        }\n");
         builder.append("    }\n\n");
 
+        // string constants, so trace sections need no Class#getSimpleName()
         builder.append("    @Override\n");
         builder.append("    @NonNull\n");
-        builder.append("    public Class getDataClass(@NonNull Class<? extends SugarHolder> holderClass) {\n");
-        builder.append("        return mDataClassMap.get(holderClass);\n");
+        builder.append("    protected String getTraceNameAt(int index) {\n");
+        builder.append("        switch (index) {\n");
+        for (int i = 0; i < holderList.size(); i++) {
+            builder.append("            case ").append(i).append(":\n");
+            builder.append("                return \"").append(getTraceName(holderList.get(i))).append("\";\n");
+        }
+        builder.append("            default:\n");
+        builder.append("                throw new IndexOutOfBoundsException(\"holder \" + index);\n");
+        builder.append("        }\n");
         builder.append("    }\n");
+
+        // for main project
+        if (!subModuleSet.isEmpty()) {
+            builder.append("\n");
+            builder.append("    @Override\n");
+            builder.append("    @NonNull\n");
+            builder.append("    protected IndexedContainerDelegate createSubModule(int index) {\n");
+            builder.append("        switch (index) {\n");
+            int index = 0;
+            for (String moduleName : subModuleSet) {
+                builder.append("            case ").append(index++).append(": // ").append(moduleName).append("\n");
+                builder.append("                return new ").append(generateClassName(moduleName)).append("();\n");
+            }
+            builder.append("            default:\n");
+            builder.append("                return super.createSubModule(index);\n");
+            builder.append("        }\n");
+            builder.append("    }\n");
+        }
+
         builder.append("}\n");
 
-        JavaFileObject object = processingEnv.getFiler().createSourceFile(packageName + "." + className);
+        JavaFileObject object = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + className, originatingElements);
         Writer writer = object.openWriter();
         writer.write(builder.toString());
         writer.flush();
         writer.close();
     }
 
-    @NonNull
-    private String generateClassName(@Nullable String moduleName) {
-        if (moduleName == null) {
-            return "ContainerDelegateImpl";
-        } else {
-            // abs(hashCode) maybe conflict, for huge project :P
-            return "ContainerDelegateImpl" + Math.abs(moduleName.trim().hashCode());
+    // merge all module indexes on classpath, except sub modules which are loaded at runtime
+    private void aggregateModules(
+            @NonNull Map<String, Pair> map, @NonNull Set<String> holderFactorySet,
+            @NonNull Map<String, String> layoutFactoryMap, @NonNull Map<String, String> injectDelegateMap,
+            @NonNull Map<String, String> itemIdExtractorMap, @NonNull Map<String, String> changeComparatorMap) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageElement(SugarModule.PACKAGE);
+        if (packageElement == null) {
+            return;
         }
-    }
-
-    // </editor-fold>
-
-    // <editor-fold desc="@Id">
-
-    private void processId(@NonNull RoundEnvironment roundEnv, Map<String, Set<String>> superclassMap) {
-        RParser parser = RParser.builder(processingEnv)
-                .setSupportedAnnotations(Collections.singleton(Id.class))
-                .setSupportedTypes("id")
-                .build();
-        parser.scan(roundEnv);
 
-        Map<String, Set<InjectInfo>> injectInfoMap = new HashMap<>();
-        for (Element element : roundEnv.getElementsAnnotatedWith(Id.class)) {
-            if (element instanceof VariableElement) {
-                String holderClass = ((TypeElement) element.getEnclosingElement()).getQualifiedName().toString();
+        Set<String> subModuleSet = getSubModuleSet();
+        Map<String, SugarModule> moduleMap = new TreeMap<>();
+        for (Element element : packageElement.getEnclosedElements()) {
+            SugarModule module = element.getAnnotation(SugarModule.class);
+            if (module == null || subModuleSet.contains(module.name())) {
+                continue;
+            }
 
-                VariableElement ve = (VariableElement) element;
-                String viewName = ve.getSimpleName().toString();
-                String viewType = ve.asType().toString();
+            if (moduleMap.put(module.name(), module) != null) {
+                throw new IllegalStateException("duplicate module " + module.name() + " in classpath!");
+            }
+        }
 
-                int viewId = element.getAnnotation(Id.class).value();
-                if (viewId == 0) {
-                    throw new IllegalStateException("process " + holderClass + " failed!");
+        for (SugarModule module : moduleMap.values()) {
+            for (SugarModule.Holder holder : module.holders()) {
+                String holderClass = holder.holderClass();
+                if (map.containsKey(holderClass)) {
+                    continue;
                 }
 
-                String viewIdStr = null;
-                String packageName = null;
-                for (String path : holderClass.split("\\.")) {
-                    if (packageName == null) {
-                        packageName = path;
-                    } else {
-                        packageName = packageName + "." + path;
-                    }
+                map.put(holderClass, new Pair(holder.layoutRes(), holder.dataClass()));
+                if (holder.holderFactory()) {
+                    holderFactorySet.add(holderClass);
+                }
 
-                    viewIdStr = parser.parse(packageName, viewId);
-                    if (!viewIdStr.equals(String.valueOf(viewId))) {
-                        break;
-                    }
+                if (holder.layoutFactory().length() > 0) {
+                    layoutFactoryMap.put(holderClass, holder.layoutFactory());
                 }
 
-                if (viewIdStr == null || viewIdStr.equals(String.valueOf(viewId))) {
-                    throw new IllegalStateException("process " + holderClass + " failed!");
+                if (holder.injectDelegate().length() > 0) {
+                    injectDelegateMap.put(holderClass, holder.injectDelegate());
                 }
 
-                Set<InjectInfo> set = injectInfoMap.get(holderClass);
-                InjectInfo info = new InjectInfo(viewName, viewType, viewIdStr);
-                if (set == null) {
-                    set = new HashSet<>();
-                    set.add(info);
-                    injectInfoMap.put(holderClass, set);
-                } else {
-                    set.add(info);
+                if (holder.itemIdExtractor().length() > 0) {
+                    itemIdExtractorMap.put(holderClass, holder.itemIdExtractor());
                 }
-            }
-        }
 
-        // put all superclass @Id to current class
-        for (String holderClass : superclassMap.keySet()) {
-            for (String superclass : superclassMap.get(holderClass)) {
-                if (injectInfoMap.containsKey(superclass)) {
-                    Set<InjectInfo> set = injectInfoMap.get(holderClass);
-                    if (set == null) {
-                        set = new HashSet<>(injectInfoMap.get(superclass));
-                        injectInfoMap.put(holderClass, set);
-                    } else  {
-                        set.addAll(injectInfoMap.get(superclass));
-                    }
+                if (holder.changeComparator().length() > 0) {
+                    changeComparatorMap.put(holderClass, holder.changeComparator());
                 }
             }
         }
-
-        if (!injectInfoMap.isEmpty()) {
-            generateInjectDelegateImpl(injectInfoMap);
-        }
     }
 
-    private void generateInjectDelegateImpl(@NonNull Map<String, Set<InjectInfo>> map) {
+    private void generateModuleIndex(
+            @NonNull Map<String, Pair> map, @NonNull Set<String> holderFactorySet,
+            @NonNull Map<String, String> layoutFactoryMap, @NonNull Map<String, String> injectDelegateMap,
+            @NonNull Map<String, String> itemIdExtractorMap, @NonNull Map<String, String> changeComparatorMap,
+            @NonNull Element[] originatingElements) throws IOException {
+        String moduleName = processingEnv.getOptions().get(OPTION_MODULE_NAME).trim();
+        String className = "SugarModule_" + moduleName.replaceAll("[^A-Za-z0-9_]", "_");
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("package ").append(SugarModule.PACKAGE).append(";\n\n");
+
+        builder.append("import com.zhihu.android.sugaradapter.SugarModule;\n\n");
+
+        builder.append("@SugarModule(\n");
+        builder.append("        name = \"").append(moduleName.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\",\n");
+        builder.append("        holders = {\n");
         for (String holderClass : map.keySet()) {
-            StringBuilder builder = new StringBuilder();
-            int lastIndex = holderClass.lastIndexOf(".");
-            if (lastIndex < 0) {
-                lastIndex = 0;
+            builder.append("                @SugarModule.Holder(\n");
+            builder.append("                        holderClass = \"").append(holderClass).append("\",\n");
+            builder.append("                        dataClass = \"").append(map.get(holderClass).getSecond()).append("\",\n");
+            builder.append("                        layoutRes = \"").append(map.get(holderClass).getFirst()).append("\",\n");
+            if (layoutFactoryMap.containsKey(holderClass)) {
+                builder.append("                        layoutFactory = \"")
+                        .append(layoutFactoryMap.get(holderClass)).append("\",\n");
             }
+            if (injectDelegateMap.containsKey(holderClass)) {
+                builder.append("                        injectDelegate = \"")
+                        .append(injectDelegateMap.get(holderClass)).append("\",\n");
+            }
+            if (itemIdExtractorMap.containsKey(holderClass)) {
+                builder.append("                        itemIdExtractor = \"")
+                        .append(itemIdExtractorMap.get(holderClass)).append("\",\n");
+            }
+            if (changeComparatorMap.containsKey(holderClass)) {
+                builder.append("                        changeComparator = \"")
+                        .append(changeComparatorMap.get(holderClass)).append("\",\n");
+            }
+            builder.append("                        holderFactory = ")
+                    .append(holderFactorySet.contains(holderClass)).append("\n");
+            builder.append("                ),\n");
+        }
+        builder.append("        }\n");
+        builder.append(")\n");
+        builder.append("public final class ").append(className).append(" {\n");
+        builder.append("}\n");
 
-            String className = holderClass.substring(lastIndex + 1) + "$InjectDelegateImpl";
-            builder.append("package ").append(holderClass, 0, lastIndex).append(";\n\n");
+        JavaFileObject object = processingEnv.getFiler()
+                .createSourceFile(SugarModule.PACKAGE + "." + className, originatingElements);
+        Writer writer = object.openWriter();
+        writer.write(builder.toString());
+        writer.flush();
+        writer.close();
+    }
 
-            builder.append("import android.annotation.SuppressLint;\n");
-            builder.append("import android.view.View;\n");
-            builder.append("import androidx.annotation.NonNull;\n\n");
+    // simple name with enclosing classes, e.g. Outer.InnerHolder
+    @NonNull
+    private String getTraceName(@NonNull String holderClass) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(holderClass);
+        if (element == null) {
+            return holderClass.substring(holderClass.lastIndexOf('.') + 1);
+        }
 
-            builder.append("import com.zhihu.android.sugaradapter.InjectDelegate;\n");
-            builder.append("import com.zhihu.android.sugaradapter.SugarHolder;\n\n");
+        StringBuilder builder = new StringBuilder(element.getSimpleName());
+        Element enclosing = element.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            builder.insert(0, '.').insert(0, enclosing.getSimpleName());
+            enclosing = enclosing.getEnclosingElement();
+        }
 
-            builder.append("public final class ").append(className).append(" implements InjectDelegate {\n");
-            builder.append("    @Override\n");
-            builder.append("    @SuppressLint(\"ResourceType\")\n");
-            builder.append("    public <SH extends SugarHolder> void injectView(@NonNull SH sh, @NonNull View view) {\n");
-            builder.append("        if (sh instanceof ").append(holderClass).append(") {\n");
-            builder.append("            ").append(holderClass).append(" th = (").append(holderClass).append(") sh;\n");
-
-            for (InjectInfo info : map.get(holderClass)) {
-                builder.append("            th.").append(info.getViewName())
-                        .append(" = (").append(info.getViewType()).append(")")
-                        .append(" view.findViewById(").append(info.getViewIdStr()).append(");\n");
+        return builder.toString();
+    }
+
+    @NonNull
+    private Set<String> getSubModuleSet() {
+        Set<String> set = new LinkedHashSet<>();
+        String subModules = processingEnv.getOptions().get(OPTION_SUB_MODULES);
+        if (subModules != null && subModules.length() > 0) {
+            for (String moduleName : subModules.split(",")) {
+                if (moduleName.trim().length() > 0) {
+                    set.add(moduleName.trim());
+                }
             }
+        }
 
-            builder.append("        }\n");
-            builder.append("    }\n");
-            builder.append("}\n");
+        return set;
+    }
 
-            try {
-                JavaFileObject object = processingEnv.getFiler().createSourceFile(className);
-                Writer writer = object.openWriter();
-                writer.write(builder.toString());
-                writer.flush();
-                writer.close();
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
-            }
+    @NonNull
+    private String generateClassName(@Nullable String moduleName) {
+        if (moduleName == null) {
+            return "ContainerDelegateImpl";
+        } else {
+            // abs(hashCode) maybe conflict, for huge project :P
+            return "ContainerDelegateImpl" + Math.abs(moduleName.trim().hashCode());
         }
     }
 
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static com.zhihu.android.sugaradapter.TestSources.assertContains;
+import static org.junit.Assert.assertFalse;
+
+public class LayoutGeneratorTest {
+    private static final JavaFileObject HOLDER = JavaFileObjects.forSourceLines("test.ItemHolder",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "@Layout(R.layout.item_foo)",
+            "public class ItemHolder extends SugarHolder<String> {",
+            "    public ItemHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    private static final String NAMESPACES = ""
+            + " xmlns:android=\"http://schemas.android.com/apk/res/android\""
+            + " xmlns:app=\"http://schemas.android.com/apk/res-auto\""
+            + " xmlns:tools=\"http://schemas.android.com/tools\"";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mResDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mResDir = mFolder.newFolder("res");
+    }
+
+    @Test
+    public void generatesLayoutFactory() throws IOException {
+        writeLayout("layout", ""
+                + "<LinearLayout" + NAMESPACES + "\n"
+                + "    android:layout_width=\"match_parent\"\n"
+                + "    android:layout_height=\"wrap_content\"\n"
+                + "    android:orientation=\"horizontal\"\n"
+                + "    android:padding=\"8dp\"\n"
+                + "    tools:ignore=\"UselessParent\">\n"
+                + "    <FrameLayout\n"
+                + "        android:layout_width=\"0dp\"\n"
+                + "        android:layout_height=\"48dp\"\n"
+                + "        android:layout_weight=\"1.5\">\n"
+                + "        <View\n"
+                + "            android:layout_width=\"match_parent\"\n"
+                + "            android:layout_height=\"1px\"\n"
+                + "            android:layout_gravity=\"bottom\"\n"
+                + "            android:background=\"#FF000000\" />\n"
+                + "    </FrameLayout>\n"
+                + "</LinearLayout>\n");
+
+        Compilation compilation = compile();
+        assertThat(compilation).succeeded();
+
+        String factory = TestSources.generatedSource(compilation, "test.ItemFoo$LayoutFactoryImpl");
+        assertContains(factory, "// generated from layout/item_foo.xml");
+        assertContains(factory, "android.widget.LinearLayout v0 = new android.widget.LinearLayout(context);");
+        assertContains(factory, "android.widget.FrameLayout v1 = new android.widget.FrameLayout(context);");
+        assertContains(factory, "lp1.weight = 1.5F;");
+        assertContains(factory, "v0.addView(v1, lp1);");
+        assertContains(factory, "v1.addView(v2, lp2);");
+
+        String delegate = TestSources.generatedSource(compilation, "com.zhihu.android.sugaradapter.ContainerDelegateImpl");
+        assertContains(delegate, "return new test.ItemFoo$LayoutFactoryImpl();");
+    }
+
+    @Test
+    public void fallsBackForAlternativeResources() throws IOException {
+        writeLayout("layout", simpleLayout(""));
+        writeLayout("layout-land", simpleLayout(""));
+        assertFallback("has alternative resources");
+    }
+
+    @Test
+    public void fallsBackForMissingXml() {
+        assertFallback("XML not found in [" + mResDir + "]");
+    }
+
+    @Test
+    public void fallsBackForCustomAttribute() throws IOException {
+        writeLayout("layout", simpleLayout(" app:layout_constraintTop_toTopOf=\"parent\""));
+        assertFallback("unsupported attribute app:layout_constraintTop_toTopOf");
+    }
+
+    @Test
+    public void fallsBackForMalformedNumber() throws IOException {
+        writeLayout("layout", ""
+                + "<LinearLayout" + NAMESPACES + "\n"
+                + "    android:layout_width=\"match_parent\"\n"
+                + "    android:layout_height=\"wrap_content\">\n"
+                + "    <View\n"
+                + "        android:layout_width=\"0dp\"\n"
+                + "        android:layout_height=\"1px\"\n"
+                + "        android:layout_weight=\"abc\" />\n"
+                + "</LinearLayout>\n");
+        assertFallback("unsupported value abc");
+    }
+
+    @Test
+    public void fallsBackForNaN() throws IOException {
+        writeLayout("layout", ""
+                + "<LinearLayout" + NAMESPACES + "\n"
+                + "    android:layout_width=\"match_parent\"\n"
+                + "    android:layout_height=\"wrap_content\">\n"
+                + "    <View\n"
+                + "        android:layout_width=\"0dp\"\n"
+                + "        android:layout_height=\"1px\"\n"
+                + "        android:layout_weight=\"NaN\" />\n"
+                + "</LinearLayout>\n");
+        assertFallback("unsupported value NaN");
+    }
+
+    @Test
+    public void fallsBackForAppCompatTag() throws IOException {
+        writeLayout("layout", ""
+                + "<TextView" + NAMESPACES + "\n"
+                + "    android:layout_width=\"match_parent\"\n"
+                + "    android:layout_height=\"wrap_content\" />\n");
+        assertFallback("unsupported tag <TextView>");
+    }
+
+    @NonNull
+    private static String simpleLayout(@NonNull String attrs) {
+        return "<FrameLayout" + NAMESPACES + attrs + "\n"
+                + "    android:layout_width=\"match_parent\"\n"
+                + "    android:layout_height=\"wrap_content\" />\n";
+    }
+
+    private void writeLayout(@NonNull String dirName, @NonNull String xml) throws IOException {
+        File dir = new File(mResDir, dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can't create " + dir);
+        }
+
+        Files.write(new File(dir, "item_foo.xml").toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NonNull
+    private Compilation compile() {
+        return javac().withProcessors(new SugarProcessor())
+                .withOptions("-AresDirsOfSugarAdapter=" + mResDir.getAbsolutePath())
+                .compile(TestSources.runtime(TestSources.r("test", "item_foo"), HOLDER));
+    }
+
+    // still compiles, and the holder is inflated by LayoutInflater
+    private void assertFallback(@NonNull String reason) {
+        Compilation compilation = compile();
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadNoteContaining(
+                "SugarAdapter: inflate test.R.layout.item_foo from XML, " + reason);
+        assertFalse(compilation.generatedSourceFile("test.ItemFoo$LayoutFactoryImpl").isPresent());
+
+        String delegate = TestSources.generatedSource(compilation, "com.zhihu.android.sugaradapter.ContainerDelegateImpl");
+        assertFalse(delegate.contains("LayoutFactoryImpl"));
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static com.zhihu.android.sugaradapter.TestSources.assertContains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class SugarItemProcessorTest {
+    private static final JavaFileObject FEED = JavaFileObjects.forSourceLines("test.Feed",
+            "package test;",
+            "",
+            "import com.zhihu.android.sugaradapter.Diffable;",
+            "",
+            "public class Feed extends Base {",
+            "    @Diffable",
+            "    int mLikeCount;",
+            "    boolean mLiked;",
+            "    String mTitle;",
+            "    private String mAuthor;",
+            "",
+            "    @Diffable",
+            "    public boolean isLiked() {",
+            "        return mLiked;",
+            "    }",
+            "",
+            "    public String getAuthor() {",
+            "        return mAuthor;",
+            "    }",
+            "}");
+
+    private static final JavaFileObject BASE = JavaFileObjects.forSourceLines("test.Base",
+            "package test;",
+            "",
+            "import com.zhihu.android.sugaradapter.Diffable;",
+            "",
+            "public class Base {",
+            "    @Diffable",
+            "    long mUpdatedAt;",
+            "}");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // <editor-fold desc="ItemId">
+    @Test
+    public void readsPrimitiveItemIdDirectly() {
+        String source = getItemIdExtractorImpl(compile(data("Feed",
+                "    @ItemId",
+                "    long id;")), "test.Feed");
+        assertContains(source, "public final class Feed$ItemIdExtractorImpl implements ItemIdExtractor<test.Feed> {");
+        assertContains(source, "return data.id;");
+    }
+
+    @Test
+    public void convertsNumberItemId() {
+        String source = getItemIdExtractorImpl(compile(data("Feed",
+                "    @ItemId",
+                "    public Long getId() {",
+                "        return 1L;",
+                "    }")), "test.Feed");
+        assertContains(source, "return ItemIdExtractor.of(data.getId());");
+    }
+
+    @Test
+    public void hashesOtherItemId() {
+        String source = getItemIdExtractorImpl(compile(data("Feed",
+                "    @ItemId",
+                "    String token;")), "test.Feed");
+        assertContains(source, "return ItemIdExtractor.hash(data.token);");
+    }
+
+    @Test
+    public void namesExtractorOfNestedDataByBinaryName() {
+        String source = getItemIdExtractorImpl(compile(JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "",
+                "import com.zhihu.android.sugaradapter.ItemId;",
+                "",
+                "public class Outer {",
+                "    public static class Feed {",
+                "        @ItemId",
+                "        int id;",
+                "    }",
+                "}")), "test.Outer$Feed");
+        assertContains(source,
+                "public final class Outer$Feed$ItemIdExtractorImpl implements ItemIdExtractor<test.Outer.Feed> {");
+    }
+
+    @Test
+    public void rejectsPrivateItemId() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> compile(data("Feed",
+                "    @ItemId",
+                "    private long id;")));
+        assertContains(String.valueOf(e.getCause()), "@ItemId test.Feed.id must be non-private and non-static!");
+    }
+
+    @Test
+    public void rejectsUnsupportedItemIdType() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> compile(data("Feed",
+                "    @ItemId",
+                "    boolean id;")));
+        assertContains(String.valueOf(e.getCause()), "@ItemId test.Feed.id of boolean is not supported!");
+    }
+
+    @Test
+    public void rejectsMoreThanOneItemId() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> compile(data("Feed",
+                "    @ItemId",
+                "    long id;",
+                "    @ItemId",
+                "    long otherId;")));
+        assertContains(String.valueOf(e.getCause()), "more than one @ItemId in test.Feed!");
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Diffable">
+    @Test
+    public void generatesMasksOfSuperclassesFirst() {
+        String source = getChangeComparatorImpl(compile(FEED, BASE), "test.Feed");
+        assertContains(source, "public final class Feed$ChangeComparatorImpl implements ChangeComparator<test.Feed> {");
+        assertContains(source, ""
+                + "    public static final long UPDATED_AT = 1L << 0;\n"
+                + "    public static final long LIKE_COUNT = 1L << 1;\n"
+                + "    public static final long LIKED = 1L << 2;\n");
+        assertContains(source, ""
+                + "            \"updatedAt\",\n"
+                + "            \"likeCount\",\n"
+                + "            \"liked\",\n");
+        assertContains(source, "if (oldItem.isLiked() != newItem.isLiked()) {");
+    }
+
+    @Test
+    public void readsOtherPrivateFieldsByGetter() {
+        String source = getChangeComparatorImpl(compile(FEED, BASE), "test.Feed");
+        assertContains(source, "if (!ChangeComparator.equals(oldItem.mTitle, newItem.mTitle)) {");
+        assertContains(source, "if (!ChangeComparator.equals(oldItem.getAuthor(), newItem.getAuthor())) {");
+        assertFalse(source.contains("oldItem.mLiked"));
+    }
+
+    @Test
+    public void comparesChangedDiffablesOnly() throws Exception {
+        ClassLoader loader = load(compile(FEED, BASE));
+        assertEquals(Long.valueOf(0L),
+                compare(loader, "test.Feed", feed(loader, 1, false, "a", "b"), feed(loader, 1, false, "a", "b")));
+        assertEquals(Long.valueOf(1L << 1),
+                compare(loader, "test.Feed", feed(loader, 1, false, "a", "b"), feed(loader, 2, false, "a", "b")));
+        assertEquals(Long.valueOf(1L << 1 | 1L << 2),
+                compare(loader, "test.Feed", feed(loader, 1, false, "a", "b"), feed(loader, 2, true, "a", "b")));
+    }
+
+    @Test
+    public void rebindsFullyIfOtherFieldChanged() throws Exception {
+        ClassLoader loader = load(compile(FEED, BASE));
+        assertNull(compare(loader, "test.Feed", feed(loader, 1, false, "a", "b"), feed(loader, 2, false, "c", "b")));
+        assertNull(compare(loader, "test.Feed", feed(loader, 1, false, "a", "b"), feed(loader, 2, false, "a", "c")));
+    }
+
+    @Test
+    public void rebindsFullyUnlessEqualIfFieldUnreadable() throws Exception {
+        Compilation compilation = compile(data("Feed",
+                "    @Diffable",
+                "    int likeCount;",
+                "    private String secret;"));
+        assertThat(compilation).hadWarningContaining(
+                "SugarAdapter: @Diffable of test.Feed always rebinds fully, test.Feed.secret has no readable getter");
+        assertContains(getChangeComparatorImpl(compilation, "test.Feed"), "// not all fields are readable");
+
+        ClassLoader loader = load(compilation);
+        Object oldItem = newInstance(loader, "test.Feed");
+        Object newItem = newInstance(loader, "test.Feed");
+        assertNull(compare(loader, "test.Feed", oldItem, newItem));
+        assertEquals(Long.valueOf(0L), compare(loader, "test.Feed", oldItem, oldItem));
+
+        set(newItem, "likeCount", 1);
+        assertNull(compare(loader, "test.Feed", oldItem, newItem));
+    }
+
+    @NonNull
+    private Object feed(@NonNull ClassLoader loader, int likeCount, boolean liked,
+                        @NonNull String title, @NonNull String author) throws Exception {
+        Object feed = newInstance(loader, "test.Feed");
+        set(feed, "mUpdatedAt", 100L);
+        set(feed, "mLikeCount", likeCount);
+        set(feed, "mLiked", liked);
+        set(feed, "mTitle", title);
+        set(feed, "mAuthor", author);
+        return feed;
+    }
+    // </editor-fold>
+
+    @NonNull
+    private static JavaFileObject data(@NonNull String simpleName, @NonNull String... members) {
+        String[] lines = new String[members.length + 6];
+        lines[0] = "package test;";
+        lines[1] = "";
+        lines[2] = "import com.zhihu.android.sugaradapter.*;";
+        lines[3] = "";
+        lines[4] = "public class " + simpleName + " {";
+        System.arraycopy(members, 0, lines, 5, members.length);
+        lines[lines.length - 1] = "}";
+        return JavaFileObjects.forSourceLines("test." + simpleName, lines);
+    }
+
+    @NonNull
+    private static Compilation compile(@NonNull JavaFileObject... sources) {
+        return javac().withProcessors(new SugarItemProcessor()).compile(TestSources.runtime(sources));
+    }
+
+    @NonNull
+    private static String getChangeComparatorImpl(@NonNull Compilation compilation, @NonNull String binaryName) {
+        assertThat(compilation).succeeded();
+        return TestSources.generatedSource(compilation, binaryName + "$ChangeComparatorImpl");
+    }
+
+    // generated classes and runtime stubs, androidx annotations are from the parent
+    @NonNull
+    private ClassLoader load(@NonNull Compilation compilation) throws IOException {
+        assertThat(compilation).succeeded();
+        File dir = TestSources.writeClasses(compilation, mFolder.newFolder());
+        return new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    @NonNull
+    private static Object newInstance(@NonNull ClassLoader loader, @NonNull String className) throws Exception {
+        return loader.loadClass(className).getConstructor().newInstance();
+    }
+
+    private static void set(@NonNull Object object, @NonNull String name, @NonNull Object value) throws Exception {
+        for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(object, value);
+                return;
+            } catch (NoSuchFieldException ignored) {
+            }
+        }
+
+        throw new NoSuchFieldException(name);
+    }
+
+    // mask of ChangeSet, or null for full rebind
+    @Nullable
+    private static Long compare(@NonNull ClassLoader loader, @NonNull String dataClass,
+                                @NonNull Object oldItem, @NonNull Object newItem) throws Exception {
+        Class<?> comparatorClass = loader.loadClass(dataClass + "$ChangeComparatorImpl");
+        Object comparator = comparatorClass.getConstructor().newInstance();
+        Object changeSet = comparatorClass.getMethod("compare", oldItem.getClass(), newItem.getClass())
+                .invoke(comparator, oldItem, newItem);
+        return changeSet != null ? (Long) changeSet.getClass().getMethod("getMask").invoke(changeSet) : null;
+    }
+
+    @NonNull
+    private static String getItemIdExtractorImpl(@NonNull Compilation compilation, @NonNull String binaryName) {
+        assertThat(compilation).succeeded();
+        return TestSources.generatedSource(compilation, binaryName + "$ItemIdExtractorImpl");
+    }
+}
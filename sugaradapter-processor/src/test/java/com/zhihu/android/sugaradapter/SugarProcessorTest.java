@@ -0,0 +1,367 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static com.zhihu.android.sugaradapter.TestSources.assertContains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SugarProcessorTest {
+    private static final JavaFileObject ITEM = JavaFileObjects.forSourceLines("test.Item",
+            "package test;",
+            "",
+            "public class Item {",
+            "}");
+
+    private static final JavaFileObject B_HOLDER = JavaFileObjects.forSourceLines("test.BHolder",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "@Layout(R.layout.item_b)",
+            "public class BHolder extends SugarHolder<Item> {",
+            "    public BHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    private static final JavaFileObject A_HOLDER = JavaFileObjects.forSourceLines("test.AHolder",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "@Layout(R.layout.item_a)",
+            "public class AHolder extends SugarHolder<String> {",
+            "    public AHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    // no public constructor(View), created by reflection at runtime
+    private static final JavaFileObject OUTER = JavaFileObjects.forSourceLines("test.Outer",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "public class Outer {",
+            "    @Layout(R.layout.item_a)",
+            "    public static class InnerHolder extends SugarHolder<java.util.List<String>> {",
+            "        InnerHolder(View view) {",
+            "            super(view);",
+            "        }",
+            "    }",
+            "}");
+
+    private static final JavaFileObject LIB_HOLDER = JavaFileObjects.forSourceLines("lib.LibHolder",
+            "package lib;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "@Layout(R.layout.item_lib)",
+            "public class LibHolder extends SugarHolder<String> {",
+            "    public LibHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    // from another module, its R can't be resolved
+    private static final JavaFileObject BASE_HOLDER = JavaFileObjects.forSourceLines("base.BaseHolder",
+            "package base;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Id;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "public abstract class BaseHolder<T> extends SugarHolder<T> {",
+            "    @Id(0x7f0a0001)",
+            "    public View title;",
+            "",
+            "    public BaseHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    private static final JavaFileObject C_HOLDER = JavaFileObjects.forSourceLines("test.CHolder",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "",
+            "@Layout(R.layout.item_a)",
+            "public class CHolder extends base.BaseHolder<String> {",
+            "    public CHolder(View view) {",
+            "        super(view);",
+            "    }",
+            "}");
+
+    private static final JavaFileObject POST = JavaFileObjects.forSourceLines("test.Post",
+            "package test;",
+            "",
+            "import com.zhihu.android.sugaradapter.Diffable;",
+            "",
+            "public class Post {",
+            "    @Diffable",
+            "    int likeCount;",
+            "",
+            "    public static class Pinned extends Post {",
+            "        boolean pinned;",
+            "    }",
+            "",
+            "    public static class Shared extends Post {",
+            "        static final int TYPE = 1;",
+            "        transient Object cache;",
+            "    }",
+            "}");
+
+    private static final JavaFileObject POST_HOLDERS = JavaFileObjects.forSourceLines("test.PostHolders",
+            "package test;",
+            "",
+            "import android.view.View;",
+            "import com.zhihu.android.sugaradapter.Layout;",
+            "import com.zhihu.android.sugaradapter.SugarHolder;",
+            "",
+            "public class PostHolders {",
+            "    @Layout(R.layout.item_a)",
+            "    public static class PinnedHolder extends SugarHolder<Post.Pinned> {",
+            "        public PinnedHolder(View view) {",
+            "            super(view);",
+            "        }",
+            "    }",
+            "",
+            "    @Layout(R.layout.item_b)",
+            "    public static class SharedHolder extends SugarHolder<Post.Shared> {",
+            "        public SharedHolder(View view) {",
+            "            super(view);",
+            "        }",
+            "    }",
+            "}");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // <editor-fold desc="ContainerDelegateImpl">
+    @Test
+    public void generatesDenseViewTypesSortedByHolderClass() {
+        String source = getContainerDelegateImpl(compile(B_HOLDER, A_HOLDER, OUTER));
+        assertContains(source, "public final class ContainerDelegateImpl extends IndexedContainerDelegate {");
+        assertContains(source, "super(3, 0);");
+        assertContains(source, ""
+                + "                test.AHolder.class,\n"
+                + "                test.BHolder.class,\n"
+                + "                test.Outer.InnerHolder.class,\n");
+        assertContains(source, ""
+                + "            case 0:\n"
+                + "                return test.R.layout.item_a;\n"
+                + "            case 1:\n"
+                + "                return test.R.layout.item_b;\n"
+                + "            case 2:\n"
+                + "                return test.R.layout.item_a;\n");
+    }
+
+    @Test
+    public void generatesDataClassWithoutTypeArguments() {
+        String source = getContainerDelegateImpl(compile(B_HOLDER, A_HOLDER, OUTER));
+        assertContains(source, ""
+                + "            case 0:\n"
+                + "                return java.lang.String.class;\n"
+                + "            case 1:\n"
+                + "                return test.Item.class;\n"
+                + "            case 2:\n"
+                + "                return java.util.List.class;\n");
+    }
+
+    @Test
+    public void generatesHolderFactoryForPublicConstructorOnly() {
+        String source = getContainerDelegateImpl(compile(B_HOLDER, A_HOLDER, OUTER));
+        assertContains(source, ""
+                + "            case 0:\n"
+                + "                return new test.AHolder(view);\n"
+                + "            case 1:\n"
+                + "                return new test.BHolder(view);\n"
+                + "            default:\n"
+                + "                return null;\n");
+    }
+
+    @Test
+    public void generatesTraceNamesWithEnclosingClasses() {
+        String source = getContainerDelegateImpl(compile(B_HOLDER, A_HOLDER, OUTER));
+        assertContains(source, ""
+                + "            case 0:\n"
+                + "                return \"AHolder\";\n"
+                + "            case 1:\n"
+                + "                return \"BHolder\";\n"
+                + "            case 2:\n"
+                + "                return \"Outer.InnerHolder\";\n");
+    }
+
+    @Test
+    public void viewTypeDoesNotDependOnSourceOrder() {
+        String first = getContainerDelegateImpl(compile(A_HOLDER, B_HOLDER, OUTER));
+        String second = getContainerDelegateImpl(compile(OUTER, B_HOLDER, A_HOLDER));
+        assertEquals(first, second);
+    }
+
+    // comparator of superclass can't see fields declared by subclass
+    @Test
+    public void usesChangeComparatorOfSuperclassWithoutOwnFields() {
+        List<JavaFileObject> list = TestSources.runtime(TestSources.r("test", "item_a", "item_b"), POST, POST_HOLDERS);
+        Compilation compilation = javac().withProcessors(new SugarProcessor(), new SugarItemProcessor()).compile(list);
+        String source = getContainerDelegateImpl(compilation);
+        assertContains(source, ""
+                + "    protected ChangeComparator createChangeComparatorAt(int index) {\n"
+                + "        switch (index) {\n"
+                + "            case 1:\n"
+                + "                return new test.Post$ChangeComparatorImpl();\n"
+                + "            default:\n");
+    }
+
+    @Test
+    public void skipsInjectDelegateIfIdOfClasspathSuperclassUnresolved() throws IOException {
+        Compilation base = javac().compile(TestSources.runtime(BASE_HOLDER));
+        assertThat(base).succeeded();
+        File dir = TestSources.writeClasses(base, mFolder.newFolder());
+
+        List<JavaFileObject> list = TestSources.runtime(TestSources.r("test", "item_a"), C_HOLDER);
+        Compilation compilation = javac().withProcessors(new SugarProcessor(), new SugarInjectProcessor())
+                .withClasspath(TestSources.classpath(dir))
+                .compile(list);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("SugarAdapter: skip @Id base.BaseHolder.title for test.CHolder");
+        assertFalse(compilation.generatedSourceFile("test.CHolder$InjectDelegateImpl").isPresent());
+        assertFalse(getContainerDelegateImpl(compilation).contains("InjectDelegateImpl"));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Module">
+    @Test
+    public void generatesModuleIndexAndDelegate() {
+        Compilation compilation = compileLib();
+        assertThat(compilation).succeeded();
+
+        String index = TestSources.generatedSource(compilation, "com.zhihu.android.sugaradapter.modules.SugarModule_lib");
+        assertContains(index, "name = \"lib\",");
+        assertContains(index, ""
+                + "                        holderClass = \"lib.LibHolder\",\n"
+                + "                        dataClass = \"java.lang.String\",\n"
+                + "                        layoutRes = \"lib.R.layout.item_lib\",\n");
+        assertContains(index, "holderFactory = true");
+
+        String className = "ContainerDelegateImpl" + Math.abs("lib".hashCode());
+        String delegate = TestSources.generatedSource(compilation, "com.zhihu.android.sugaradapter." + className);
+        assertContains(delegate, "public final class " + className + " extends IndexedContainerDelegate {");
+        assertContains(delegate, "super(1, 0);");
+    }
+
+    @Test
+    public void aggregatesModulesAfterOwnHolders() throws IOException {
+        File dir = TestSources.writeClasses(compileLib(), mFolder.newFolder());
+        String source = getContainerDelegateImpl(compileApp(dir, A_HOLDER));
+        assertContains(source, "super(2, 0);");
+        assertContains(source, ""
+                + "                test.AHolder.class,\n"
+                + "                lib.LibHolder.class,\n");
+        assertContains(source, ""
+                + "            case 1:\n"
+                + "                return lib.R.layout.item_lib;\n");
+        assertContains(source, ""
+                + "            case 1:\n"
+                + "                return new lib.LibHolder(view);\n");
+    }
+
+    @Test
+    public void aggregatesModulesWithoutOwnHolders() throws IOException {
+        File dir = TestSources.writeClasses(compileLib(), mFolder.newFolder());
+        String source = getContainerDelegateImpl(compileApp(dir));
+        assertContains(source, "super(1, 0);");
+        assertContains(source, "                lib.LibHolder.class,\n");
+    }
+
+    @Test
+    public void loadsSubModulesInsteadOfAggregating() throws IOException {
+        File dir = TestSources.writeClasses(compileLib(), mFolder.newFolder());
+        String source = getContainerDelegateImpl(compileApp(dir,
+                Collections.singletonList("-AsubModulesOfSugarAdapter=lib"), A_HOLDER));
+        assertContains(source, "super(1, 1);");
+        assertFalse(source.contains("lib.LibHolder"));
+        assertContains(source, ""
+                + "            case 0: // lib\n"
+                + "                return new ContainerDelegateImpl" + Math.abs("lib".hashCode()) + "();\n");
+    }
+    // </editor-fold>
+
+    @NonNull
+    private static Compilation compile(@NonNull JavaFileObject... sources) {
+        List<JavaFileObject> list = TestSources.runtime(TestSources.r("test", "item_a", "item_b"), ITEM);
+        list.addAll(Arrays.asList(sources));
+        return javac().withProcessors(new SugarProcessor()).compile(list);
+    }
+
+    @NonNull
+    private static Compilation compileLib() {
+        return javac().withProcessors(new SugarProcessor())
+                .withOptions("-AmoduleNameOfSugarAdapter=lib")
+                .compile(TestSources.runtime(TestSources.r("lib", "item_lib"), LIB_HOLDER));
+    }
+
+    @NonNull
+    private static Compilation compileApp(@NonNull File libDir, @NonNull JavaFileObject... sources) {
+        return compileApp(libDir, Collections.emptyList(), sources);
+    }
+
+    @NonNull
+    private static Compilation compileApp(
+            @NonNull File libDir, @NonNull List<String> options, @NonNull JavaFileObject... sources) {
+        List<JavaFileObject> list = TestSources.runtime(TestSources.r("test", "item_a", "item_b"), ITEM);
+        list.addAll(Arrays.asList(sources));
+        return javac().withProcessors(new SugarProcessor())
+                .withOptions(options)
+                .withClasspath(TestSources.classpath(libDir))
+                .compile(list);
+    }
+
+    @NonNull
+    private static String getContainerDelegateImpl(@NonNull Compilation compilation) {
+        assertThat(compilation).succeeded();
+        return TestSources.generatedSource(compilation, "com.zhihu.android.sugaradapter.ContainerDelegateImpl");
+    }
+}
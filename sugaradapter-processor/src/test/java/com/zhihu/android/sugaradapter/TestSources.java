@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// runtime API of SugarAdapter which generated code compiles against,
+// the library is an Android module, so it can't be on the classpath of processor tests
+final class TestSources {
+    static final JavaFileObject SUGAR_HOLDER = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.SugarHolder",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "import android.view.View;",
+            "",
+            "public abstract class SugarHolder<T> {",
+            "    public SugarHolder(View view) {",
+            "    }",
+            "}");
+
+    static final JavaFileObject INDEXED_CONTAINER_DELEGATE = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.IndexedContainerDelegate",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "import android.view.View;",
+            "",
+            "public abstract class IndexedContainerDelegate {",
+            "    protected IndexedContainerDelegate(int holderCount, int subModuleCount) {",
+            "    }",
+            "",
+            "    protected abstract Class[] createHolderClasses();",
+            "",
+            "    protected abstract int getLayoutResAt(int index);",
+            "",
+            "    protected abstract Class getDataClassAt(int index);",
+            "",
+            "    protected abstract SugarHolder createHolderAt(int index, View view);",
+            "",
+            "    protected abstract LayoutFactory createLayoutFactoryAt(int index);",
+            "",
+            "    protected abstract InjectDelegate createInjectDelegateAt(int index);",
+            "",
+            "    protected abstract ItemIdExtractor createItemIdExtractorAt(int index);",
+            "",
+            "    protected abstract ChangeComparator createChangeComparatorAt(int index);",
+            "",
+            "    protected abstract String getTraceNameAt(int index);",
+            "",
+            "    protected IndexedContainerDelegate createSubModule(int index) {",
+            "        throw new IndexOutOfBoundsException(\"sub module \" + index);",
+            "    }",
+            "}");
+
+    static final JavaFileObject LAYOUT_FACTORY = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.LayoutFactory",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "import android.view.View;",
+            "import android.view.ViewGroup;",
+            "",
+            "public interface LayoutFactory {",
+            "    View create(ViewGroup parent);",
+            "}");
+
+    static final JavaFileObject INJECT_DELEGATE = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.InjectDelegate",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "import android.view.View;",
+            "",
+            "public interface InjectDelegate {",
+            "    <SH extends SugarHolder> void injectView(SH sh, View view);",
+            "}");
+
+    static final JavaFileObject ITEM_ID_EXTRACTOR = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.ItemIdExtractor",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "public interface ItemIdExtractor<T> {",
+            "    long getItemId(T data);",
+            "",
+            "    static long of(Number number) {",
+            "        return number != null ? number.longValue() : -1L;",
+            "    }",
+            "",
+            "    static long hash(CharSequence sequence) {",
+            "        return sequence != null ? sequence.toString().hashCode() : -1L;",
+            "    }",
+            "",
+            "    static long hash(Object object) {",
+            "        return object != null ? hash(object.toString()) : -1L;",
+            "    }",
+            "}");
+
+    static final JavaFileObject CHANGE_COMPARATOR = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.ChangeComparator",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "public interface ChangeComparator<T> {",
+            "    ChangeSet compare(T oldItem, T newItem);",
+            "",
+            "    static boolean equals(Object a, Object b) {",
+            "        return a == b || a != null && a.equals(b);",
+            "    }",
+            "}");
+
+    static final JavaFileObject CHANGE_SET = JavaFileObjects.forSourceLines(
+            "com.zhihu.android.sugaradapter.ChangeSet",
+            "package com.zhihu.android.sugaradapter;",
+            "",
+            "public final class ChangeSet {",
+            "    private final String[] mNames;",
+            "    private final long mMask;",
+            "",
+            "    public ChangeSet(String[] names, long mask) {",
+            "        mNames = names;",
+            "        mMask = mask;",
+            "    }",
+            "",
+            "    public String[] getNames() {",
+            "        return mNames;",
+            "    }",
+            "",
+            "    public long getMask() {",
+            "        return mMask;",
+            "    }",
+            "}");
+
+    static final JavaFileObject RECYCLER_VIEW = JavaFileObjects.forSourceLines(
+            "androidx.recyclerview.widget.RecyclerView",
+            "package androidx.recyclerview.widget;",
+            "",
+            "import android.content.Context;",
+            "import android.view.ViewGroup;",
+            "",
+            "public abstract class RecyclerView extends ViewGroup {",
+            "    public RecyclerView(Context context) {",
+            "        super(context);",
+            "    }",
+            "",
+            "    public static class LayoutParams extends ViewGroup.MarginLayoutParams {",
+            "        public LayoutParams(int width, int height) {",
+            "            super(width, height);",
+            "        }",
+            "    }",
+            "}");
+
+    private TestSources() {
+    }
+
+    @NonNull
+    static List<JavaFileObject> runtime(@NonNull JavaFileObject... sources) {
+        List<JavaFileObject> list = new ArrayList<>(Arrays.asList(SUGAR_HOLDER, INDEXED_CONTAINER_DELEGATE,
+                LAYOUT_FACTORY, INJECT_DELEGATE, ITEM_ID_EXTRACTOR, CHANGE_COMPARATOR, CHANGE_SET, RECYCLER_VIEW));
+        list.addAll(Arrays.asList(sources));
+        return list;
+    }
+
+    // e.g. R of package "test" with layouts "item_foo" and "item_bar"
+    @NonNull
+    static JavaFileObject r(@NonNull String packageName, @NonNull String... layouts) {
+        List<String> lines = new ArrayList<>();
+        lines.add("package " + packageName + ";");
+        lines.add("");
+        lines.add("public final class R {");
+        lines.add("    public static final class layout {");
+        for (int i = 0; i < layouts.length; i++) {
+            lines.add("        public static final int " + layouts[i] + " = 0x7f0b" + String.format("%04x", i + 1) + ";");
+        }
+        lines.add("    }");
+        lines.add("}");
+        return JavaFileObjects.forSourceLines(packageName + ".R", lines);
+    }
+
+    @NonNull
+    static String generatedSource(@NonNull Compilation compilation, @NonNull String className) {
+        JavaFileObject object = compilation.generatedSourceFile(className).orElse(null);
+        assertNotNull(className + " not generated", object);
+        try {
+            return object.getCharContent(true).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void assertContains(@NonNull String source, @NonNull String expected) {
+        assertTrue("expected:\n" + expected + "\nin:\n" + source, source.contains(expected));
+    }
+
+    // a module compiled for classpath of later compilations
+    @NonNull
+    static File writeClasses(@NonNull Compilation compilation, @NonNull File dir) throws IOException {
+        for (JavaFileObject object : compilation.generatedFiles()) {
+            if (object.getKind() != JavaFileObject.Kind.CLASS) {
+                continue;
+            }
+
+            String path = object.toUri().getPath();
+            Path target = dir.toPath().resolve(path.substring(path.indexOf('/', 1) + 1));
+            Files.createDirectories(target.getParent());
+            try (InputStream input = object.openInputStream()) {
+                Files.copy(input, target);
+            }
+        }
+
+        return dir;
+    }
+
+    // dir before the classpath of this test
+    @NonNull
+    static List<File> classpath(@NonNull File dir) {
+        List<File> list = new ArrayList<>();
+        list.add(dir);
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            list.add(new File(path));
+        }
+
+        return list;
+    }
+}
@@ -30,4 +30,3 @@
 }
 
 -keep class * implements com.zhihu.android.sugaradapter.ContainerDelegate
--keep class * implements com.zhihu.android.sugaradapter.InjectDelegate
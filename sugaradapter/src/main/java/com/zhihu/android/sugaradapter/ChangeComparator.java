@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+// generated for data class with @Diffable, as XxxData$ChangeComparatorImpl
+public interface ChangeComparator<T> {
+    // return an empty ChangeSet if nothing changed, or null if other fields changed too, which needs a full rebind
+    @Nullable
+    ChangeSet compare(@NonNull T oldItem, @NonNull T newItem);
+
+    // java.util.Objects requires API 19
+    static boolean equals(@Nullable Object a, @Nullable Object b) {
+        return a == b || a != null && a.equals(b);
+    }
+}
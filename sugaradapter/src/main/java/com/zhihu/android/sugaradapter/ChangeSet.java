@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+// @Diffable members changed, one bit per member in declared order
+public final class ChangeSet {
+    private final String[] mNames;
+    private final long mMask;
+
+    // names are shared by all ChangeSets of one data class
+    public ChangeSet(@NonNull String[] names, long mask) {
+        mNames = names;
+        mMask = mask;
+    }
+
+    // merge payloads of one bind, return null if any of them is not a ChangeSet of the same data class,
+    // then the holder should bind all
+    @Nullable
+    public static ChangeSet of(@NonNull List<Object> payloads) {
+        ChangeSet result = null;
+        for (Object payload : payloads) {
+            if (!(payload instanceof ChangeSet)) {
+                return null;
+            }
+
+            ChangeSet set = (ChangeSet) payload;
+            if (result == null) {
+                result = set;
+            } else if (result.mNames == set.mNames) {
+                result = new ChangeSet(result.mNames, result.mMask | set.mMask);
+            } else {
+                return null;
+            }
+        }
+
+        return result;
+    }
+
+    public long getMask() {
+        return mMask;
+    }
+
+    // nothing changed, see ChangeComparator#compare()
+    public boolean isEmpty() {
+        return mMask == 0L;
+    }
+
+    // name of field, or method without "()"
+    public boolean contains(@NonNull String name) {
+        int index = indexOf(name);
+        return index >= 0 && (mMask & (1L << index)) != 0;
+    }
+
+    public boolean containsOnly(@NonNull String... names) {
+        long mask = 0L;
+        for (String name : names) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                mask |= 1L << index;
+            }
+        }
+
+        return (mMask & ~mask) == 0;
+    }
+
+    private int indexOf(@NonNull String name) {
+        for (int i = 0; i < mNames.length; i++) {
+            if (mNames[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ChangeSet[");
+        for (int i = 0; i < mNames.length; i++) {
+            if ((mMask & (1L << i)) != 0) {
+                builder.append(builder.length() > 10 ? ", " : "").append(mNames[i]);
+            }
+        }
+
+        return builder.append("]").toString();
+    }
+}
@@ -16,6 +16,11 @@
 
 package com.zhihu.android.sugaradapter;
 
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.AnyThread;
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -24,16 +29,27 @@ class Container {
     private Class<? extends SugarHolder> mHolderClass;
     private Class<?> mDataClass;
     private int mLayoutRes;
+    private int mViewType;
     private SugarHolder.OnCreatedCallback mCallback;
-    private Object mData;
+    private HolderFactory mHolderFactory;
+    private LayoutFactory mLayoutFactory;
+    private ItemIdExtractor mItemIdExtractor;
+    private ChangeComparator mChangeComparator;
 
     Container(@NonNull Class<? extends SugarHolder> holderClass,
-              @NonNull Class<?> dataClass, @LayoutRes int layoutRes,
-              @Nullable SugarHolder.OnCreatedCallback callback) {
+              @NonNull Class<?> dataClass, @LayoutRes int layoutRes, int viewType,
+              @Nullable SugarHolder.OnCreatedCallback callback, @Nullable HolderFactory holderFactory,
+              @Nullable LayoutFactory layoutFactory, @Nullable ItemIdExtractor itemIdExtractor,
+              @Nullable ChangeComparator changeComparator) {
         mHolderClass = holderClass;
         mDataClass = dataClass;
         mLayoutRes = layoutRes;
+        mViewType = viewType;
         mCallback = callback;
+        mHolderFactory = holderFactory;
+        mLayoutFactory = layoutFactory;
+        mItemIdExtractor = itemIdExtractor;
+        mChangeComparator = changeComparator;
     }
 
     @NonNull
@@ -51,17 +67,64 @@ class Container {
         return mLayoutRes;
     }
 
+    int getViewType() {
+        return mViewType;
+    }
+
     @Nullable
     SugarHolder.OnCreatedCallback getCallback() {
         return mCallback;
     }
 
+    @Nullable
+    HolderFactory getHolderFactory() {
+        return mHolderFactory;
+    }
+
+    @Nullable
+    LayoutFactory getLayoutFactory() {
+        return mLayoutFactory;
+    }
+
+    @Nullable
+    ItemIdExtractor getItemIdExtractor() {
+        return mItemIdExtractor;
+    }
+
+    @Nullable
+    ChangeComparator getChangeComparator() {
+        return mChangeComparator;
+    }
+
+    @AnyThread
     @NonNull
-    Object getData() {
-        return mData;
+    View inflateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup parent) {
+        boolean trace = SugarTrace.sEnabled;
+        if (trace) {
+            SugarTrace.begin(mHolderClass, SugarTrace.INFLATE);
+        }
+
+        View view;
+        if (mLayoutFactory != null) {
+            view = mLayoutFactory.create(parent);
+        } else {
+            view = inflater.inflate(mLayoutRes, parent, false);
+        }
+
+        if (trace) {
+            SugarTrace.end();
+        }
+
+        return view;
     }
 
-    void setData(@NonNull Object data) {
-        mData = data;
+    @AnyThread
+    @NonNull
+    SugarHolder createHolder(@NonNull View view) throws Exception {
+        if (mHolderFactory != null) {
+            return mHolderFactory.create(view);
+        } else {
+            return mHolderClass.getDeclaredConstructor(View.class).newInstance(view);
+        }
     }
 }
@@ -18,8 +18,10 @@ package com.zhihu.android.sugaradapter;
 
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public interface ContainerDelegate {
@@ -33,9 +35,56 @@ public interface ContainerDelegate {
         return Collections.emptyMap();
     }
 
+    // ordered by view type
+    @NonNull
+    default List<Class<? extends SugarHolder>> getHolderClassList() {
+        return Collections.emptyList();
+    }
+
     @LayoutRes
     int getLayoutRes(@NonNull Class<? extends SugarHolder> holderClass);
 
     @NonNull
     Class getDataClass(@NonNull Class<? extends SugarHolder> holderClass);
+
+    // dense and stable view type, or -1 if holderClass not found
+    default int getViewType(@NonNull Class<? extends SugarHolder> holderClass) {
+        return getHolderClassList().indexOf(holderClass);
+    }
+
+    // return null to construct holder by reflection
+    @Nullable
+    default HolderFactory getHolderFactory(@NonNull Class<? extends SugarHolder> holderClass) {
+        return null;
+    }
+
+    // return null to inflate layout from XML
+    @Nullable
+    default LayoutFactory getLayoutFactory(@NonNull Class<? extends SugarHolder> holderClass) {
+        return null;
+    }
+
+    // return null if data class of holderClass has no @ItemId
+    @Nullable
+    default ItemIdExtractor getItemIdExtractor(@NonNull Class<? extends SugarHolder> holderClass) {
+        return null;
+    }
+
+    // return null if data class of holderClass has no @Diffable
+    @Nullable
+    default ChangeComparator getChangeComparator(@NonNull Class<? extends SugarHolder> holderClass) {
+        return null;
+    }
+
+    // short name of holderClass for trace sections, generated to survive obfuscation
+    @NonNull
+    default String getTraceName(@NonNull Class<? extends SugarHolder> holderClass) {
+        return holderClass.getSimpleName();
+    }
+
+    // return null if holderClass has no @Id
+    @Nullable
+    default InjectDelegate getInjectDelegate(@NonNull Class<? extends SugarHolder> holderClass) {
+        return null;
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// prepare data of items about to be visible in background, in the scroll direction,
+// bind falls back to prepare inline if not ready
+@MainThread
+class DataPreparer extends RecyclerView.AdapterDataObserver {
+    private static final String TAG = "DataPreparer";
+
+    // items ahead of the last (or first) visible one
+    private static final int PREPARE_DISTANCE = 6;
+    private static final int MAX_CACHE_SIZE = 64;
+
+    // data may be modified in place and notified, which changes its hashCode(), so it's keyed by identity
+    private static final class Key {
+        private final Object mData;
+
+        private Key(@NonNull Object data) {
+            mData = data;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            return o instanceof Key && ((Key) o).mData == mData;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mData);
+        }
+    }
+
+    private SugarAdapter mAdapter;
+    private Handler mMainHandler;
+    private SparseArray<SugarAdapter.Preparer<Object, Object>> mPreparerArray;
+
+    // LRU of prepared results by data instance
+    private Map<Key, Object> mCacheMap;
+    private Map<Object, Object> mPendingMap;
+    private RecyclerView.OnScrollListener mScrollListener;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    DataPreparer(@NonNull SugarAdapter adapter) {
+        mAdapter = adapter;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mPreparerArray = new SparseArray<>();
+        mCacheMap = new LinkedHashMap<Key, Object>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(@NonNull Map.Entry<Key, Object> eldest) {
+                return size() > MAX_CACHE_SIZE;
+            }
+        };
+        mPendingMap = new IdentityHashMap<>();
+        mScrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                prepareAhead(view, dx < 0 || dy < 0);
+            }
+        };
+    }
+
+    // <editor-fold desc="Preparer">
+    @SuppressWarnings("unchecked")
+    void put(int viewType, @NonNull SugarAdapter.Preparer<?, ?> preparer) {
+        mPreparerArray.put(viewType, (SugarAdapter.Preparer<Object, Object>) preparer);
+        reset();
+    }
+
+    void remove(int viewType) {
+        mPreparerArray.remove(viewType);
+        reset();
+    }
+
+    void attach(@NonNull RecyclerView view) {
+        view.addOnScrollListener(mScrollListener);
+    }
+
+    void detach(@NonNull RecyclerView view) {
+        view.removeOnScrollListener(mScrollListener);
+        if (mHitCount + mMissCount > 0) {
+            Log.d(TAG, "prepare hit rate " + (mHitCount * 100 / (mHitCount + mMissCount))
+                    + "%, hit " + mHitCount + ", miss " + mMissCount);
+        }
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Prepare">
+    // return null if viewType has no Preparer
+    @Nullable
+    Object obtain(int viewType, @NonNull Object data) {
+        SugarAdapter.Preparer<Object, Object> preparer = mPreparerArray.get(viewType);
+        if (preparer == null) {
+            return null;
+        }
+
+        Key key = new Key(data);
+        Object prepared = mCacheMap.get(key);
+        if (prepared != null) {
+            mHitCount++;
+            return prepared;
+        }
+
+        mMissCount++;
+        prepared = preparer.prepare(data);
+        mPendingMap.remove(data);
+        mCacheMap.put(key, prepared);
+        return prepared;
+    }
+
+    private void prepareAhead(@NonNull RecyclerView view, boolean backward) {
+        int childCount = view.getChildCount();
+        if (mPreparerArray.size() == 0 || childCount == 0) {
+            return;
+        }
+
+        int first = RecyclerView.NO_POSITION;
+        int last = RecyclerView.NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            int position = view.getChildAdapterPosition(view.getChildAt(i));
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+
+            first = first == RecyclerView.NO_POSITION ? position : Math.min(first, position);
+            last = Math.max(last, position);
+        }
+
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int itemCount = mAdapter.getItemCount();
+        for (int i = 1; i <= PREPARE_DISTANCE; i++) {
+            int position = backward ? first - i : last + i;
+            if (position < 0 || position >= itemCount) {
+                break;
+            }
+
+            prepare(position);
+        }
+    }
+
+    // positions not loaded of SugarPagedList are skipped, they are prepared inline when bound
+    private void prepare(int position) {
+        Object data = mAdapter.peekItemAt(position);
+        if (data == null) {
+            return;
+        }
+
+        SugarAdapter.Preparer<Object, Object> preparer = mPreparerArray.get(mAdapter.getItemViewType(position, data));
+        if (preparer == null) {
+            return;
+        }
+
+        Key key = new Key(data);
+        if (mCacheMap.containsKey(key) || mPendingMap.containsKey(data)) {
+            return;
+        }
+
+        Object token = new Object();
+        mPendingMap.put(data, token);
+
+        Executor executor = Sugar.INSTANCE.getPrepareExecutor();
+        executor.execute(() -> {
+            Object prepared = null;
+            try {
+                prepared = preparer.prepare(data);
+            } catch (@NonNull Exception e) {
+                Log.e(TAG, "prepare failed, " + data, e);
+            }
+
+            Object result = prepared;
+            mMainHandler.post(() -> {
+                // dropped if invalidated, or prepared inline
+                if (mPendingMap.get(data) == token) {
+                    mPendingMap.remove(data);
+                    if (result != null) {
+                        mCacheMap.put(key, result);
+                    }
+                }
+            });
+        });
+    }
+
+    private void reset() {
+        mCacheMap.clear();
+        mPendingMap.clear();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="AdapterDataObserver">
+    @Override
+    public void onChanged() {
+        reset();
+    }
+
+    // data may be modified in place
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        if (mCacheMap.isEmpty() && mPendingMap.isEmpty()) {
+            return;
+        }
+
+        // peek doesn't load pages of SugarPagedList, results of evicted items are left to LRU
+        int end = Math.min(positionStart + itemCount, mAdapter.getItemCount());
+        for (int i = positionStart; i < end; i++) {
+            Object data = mAdapter.peekItemAt(i);
+            if (data != null) {
+                mCacheMap.remove(new Key(data));
+                mPendingMap.remove(data);
+            }
+        }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+        onItemRangeChanged(positionStart, itemCount);
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.view.View;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// base of generated ContainerDelegateImpl, holders of current module are indexed by view type,
+// holders of sub modules are appended after them; nothing is loaded until the first lookup
+public abstract class IndexedContainerDelegate implements ContainerDelegate {
+    private static final InjectDelegate NO_INJECT_DELEGATE = new InjectDelegate() {
+        @Override
+        public <SH extends SugarHolder> void injectView(@NonNull SH sh, @NonNull View view) {}
+    };
+
+    private final int mHolderCount;
+    private final IndexedContainerDelegate[] mSubModules;
+    private final Map<Class<?>, IndexedContainerDelegate> mSubModuleMap;
+
+    // written at most once per index, racing threads create the same stateless instance
+    private final HolderFactory[] mHolderFactories;
+    private final LayoutFactory[] mLayoutFactories;
+    private final InjectDelegate[] mInjectDelegates;
+    private final ItemIdExtractor[] mItemIdExtractors;
+    private final ChangeComparator[] mChangeComparators;
+
+    private volatile int mTotalHolderCount = -1;
+    private volatile ClassIndex mClassIndex;
+    private volatile List<Class<? extends SugarHolder>> mHolderClassList;
+
+    protected IndexedContainerDelegate(int holderCount, int subModuleCount) {
+        mHolderCount = holderCount;
+        mSubModules = new IndexedContainerDelegate[subModuleCount];
+        mSubModuleMap = new ConcurrentHashMap<>();
+        mHolderFactories = new HolderFactory[holderCount];
+        mLayoutFactories = new LayoutFactory[holderCount];
+        mInjectDelegates = new InjectDelegate[holderCount];
+        mItemIdExtractors = new ItemIdExtractor[holderCount];
+        mChangeComparators = new ChangeComparator[holderCount];
+    }
+
+    // <editor-fold desc="Generated">
+
+    @NonNull
+    protected abstract Class[] createHolderClasses();
+
+    @LayoutRes
+    protected abstract int getLayoutResAt(int index);
+
+    @NonNull
+    protected abstract Class getDataClassAt(int index);
+
+    // return null to construct holder by reflection
+    @Nullable
+    protected abstract SugarHolder createHolderAt(int index, @NonNull View view);
+
+    @Nullable
+    protected abstract LayoutFactory createLayoutFactoryAt(int index);
+
+    @Nullable
+    protected abstract InjectDelegate createInjectDelegateAt(int index);
+
+    @Nullable
+    protected abstract ItemIdExtractor createItemIdExtractorAt(int index);
+
+    @Nullable
+    protected abstract ChangeComparator createChangeComparatorAt(int index);
+
+    @NonNull
+    protected abstract String getTraceNameAt(int index);
+
+    @NonNull
+    protected IndexedContainerDelegate createSubModule(int index) {
+        throw new IndexOutOfBoundsException("sub module " + index);
+    }
+
+    // </editor-fold>
+
+    // holders of current module and all sub modules
+    public int getHolderCount() {
+        int count = mTotalHolderCount;
+        if (count < 0) {
+            count = mHolderCount;
+            for (int i = 0; i < mSubModules.length; i++) {
+                count += getSubModule(i).getHolderCount();
+            }
+
+            mTotalHolderCount = count;
+        }
+
+        return count;
+    }
+
+    @Override
+    @NonNull
+    public List<Class<? extends SugarHolder>> getHolderClassList() {
+        List<Class<? extends SugarHolder>> list = mHolderClassList;
+        if (list == null) {
+            list = new ArrayList<>(getClassIndex().getClasses());
+            for (int i = 0; i < mSubModules.length; i++) {
+                list.addAll(getSubModule(i).getHolderClassList());
+            }
+
+            list = Collections.unmodifiableList(list);
+            mHolderClassList = list;
+        }
+
+        return list;
+    }
+
+    @Override
+    @NonNull
+    public Map<Class<? extends SugarHolder>, Integer> getLayoutResMap() {
+        Map<Class<? extends SugarHolder>, Integer> map = new HashMap<>();
+        for (Class<? extends SugarHolder> holderClass : getHolderClassList()) {
+            map.put(holderClass, getLayoutRes(holderClass));
+        }
+
+        return map;
+    }
+
+    @Override
+    @NonNull
+    public Map<Class<? extends SugarHolder>, Class> getDataClassMap() {
+        Map<Class<? extends SugarHolder>, Class> map = new HashMap<>();
+        for (Class<? extends SugarHolder> holderClass : getHolderClassList()) {
+            map.put(holderClass, getDataClass(holderClass));
+        }
+
+        return map;
+    }
+
+    @Override
+    public int getViewType(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index >= 0) {
+            return index;
+        }
+
+        int offset = mHolderCount;
+        for (int i = 0; i < mSubModules.length; i++) {
+            IndexedContainerDelegate module = getSubModule(i);
+            int viewType = module.getViewType(holderClass);
+            if (viewType >= 0) {
+                return offset + viewType;
+            }
+
+            offset += module.getHolderCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    @LayoutRes
+    public int getLayoutRes(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index >= 0) {
+            return getLayoutResAt(index);
+        }
+
+        IndexedContainerDelegate module = findSubModule(holderClass);
+        return module != null ? module.getLayoutRes(holderClass) : 0;
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Override
+    @NonNull
+    public Class getDataClass(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index >= 0) {
+            return getDataClassAt(index);
+        }
+
+        IndexedContainerDelegate module = findSubModule(holderClass);
+        return module != null ? module.getDataClass(holderClass) : null;
+    }
+
+    @Override
+    @Nullable
+    public HolderFactory getHolderFactory(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index < 0) {
+            IndexedContainerDelegate module = findSubModule(holderClass);
+            return module != null ? module.getHolderFactory(holderClass) : null;
+        }
+
+        HolderFactory factory = mHolderFactories[index];
+        if (factory == null) {
+            factory = view -> {
+                SugarHolder holder = createHolderAt(index, view);
+                if (holder != null) {
+                    return holder;
+                }
+
+                try {
+                    return holderClass.getDeclaredConstructor(View.class).newInstance(view);
+                } catch (@NonNull Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+            mHolderFactories[index] = factory;
+        }
+
+        return factory;
+    }
+
+    @Override
+    @Nullable
+    public LayoutFactory getLayoutFactory(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index < 0) {
+            IndexedContainerDelegate module = findSubModule(holderClass);
+            return module != null ? module.getLayoutFactory(holderClass) : null;
+        }
+
+        LayoutFactory factory = mLayoutFactories[index];
+        if (factory == null) {
+            factory = createLayoutFactoryAt(index);
+            mLayoutFactories[index] = factory;
+        }
+
+        return factory;
+    }
+
+    @Override
+    @Nullable
+    public InjectDelegate getInjectDelegate(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index < 0) {
+            IndexedContainerDelegate module = findSubModule(holderClass);
+            return module != null ? module.getInjectDelegate(holderClass) : null;
+        }
+
+        InjectDelegate delegate = mInjectDelegates[index];
+        if (delegate == null) {
+            delegate = createInjectDelegateAt(index);
+            if (delegate == null) {
+                delegate = NO_INJECT_DELEGATE;
+            }
+
+            mInjectDelegates[index] = delegate;
+        }
+
+        return delegate != NO_INJECT_DELEGATE ? delegate : null;
+    }
+
+    // called for each item, so keep it as cheap as getLayoutFactory()
+    @Override
+    @Nullable
+    public ItemIdExtractor getItemIdExtractor(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index < 0) {
+            IndexedContainerDelegate module = findSubModule(holderClass);
+            return module != null ? module.getItemIdExtractor(holderClass) : null;
+        }
+
+        ItemIdExtractor extractor = mItemIdExtractors[index];
+        if (extractor == null) {
+            extractor = createItemIdExtractorAt(index);
+            mItemIdExtractors[index] = extractor;
+        }
+
+        return extractor;
+    }
+
+    @Override
+    @Nullable
+    public ChangeComparator getChangeComparator(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index < 0) {
+            IndexedContainerDelegate module = findSubModule(holderClass);
+            return module != null ? module.getChangeComparator(holderClass) : null;
+        }
+
+        ChangeComparator comparator = mChangeComparators[index];
+        if (comparator == null) {
+            comparator = createChangeComparatorAt(index);
+            mChangeComparators[index] = comparator;
+        }
+
+        return comparator;
+    }
+
+    @Override
+    @NonNull
+    public String getTraceName(@NonNull Class<? extends SugarHolder> holderClass) {
+        int index = getClassIndex().indexOf(holderClass);
+        if (index >= 0) {
+            return getTraceNameAt(index);
+        }
+
+        IndexedContainerDelegate module = findSubModule(holderClass);
+        return module != null ? module.getTraceName(holderClass) : holderClass.getSimpleName();
+    }
+
+    @NonNull
+    private ClassIndex getClassIndex() {
+        ClassIndex index = mClassIndex;
+        if (index == null) {
+            index = new ClassIndex(createHolderClasses());
+            mClassIndex = index;
+        }
+
+        return index;
+    }
+
+    // written at most once like the tables above, without lock on the read path
+    @NonNull
+    private IndexedContainerDelegate getSubModule(int index) {
+        IndexedContainerDelegate module = mSubModules[index];
+        if (module == null) {
+            module = createSubModule(index);
+            mSubModules[index] = module;
+        }
+
+        return module;
+    }
+
+    // holders of sub modules hit it on every holder creation, so the scan is done once per class
+    @Nullable
+    private IndexedContainerDelegate findSubModule(@NonNull Class<? extends SugarHolder> holderClass) {
+        IndexedContainerDelegate found = mSubModuleMap.get(holderClass);
+        if (found != null) {
+            return found;
+        }
+
+        for (int i = 0; i < mSubModules.length; i++) {
+            IndexedContainerDelegate module = getSubModule(i);
+            if (module.getViewType(holderClass) >= 0) {
+                mSubModuleMap.put(holderClass, module);
+                return module;
+            }
+        }
+
+        return null;
+    }
+
+    // open addressing hash table from class to index, without boxing
+    private static final class ClassIndex {
+        private final List<Class<? extends SugarHolder>> mClasses;
+        private final Class[] mKeys;
+        private final int[] mValues;
+        private final int mMask;
+
+        @SuppressWarnings("unchecked")
+        ClassIndex(@NonNull Class[] classes) {
+            int capacity = 2;
+            while (capacity < classes.length * 2) {
+                capacity <<= 1;
+            }
+
+            mClasses = new ArrayList<>(classes.length);
+            mKeys = new Class[capacity];
+            mValues = new int[capacity];
+            mMask = capacity - 1;
+
+            for (int i = 0; i < classes.length; i++) {
+                mClasses.add((Class<? extends SugarHolder>) classes[i]);
+                int slot = hash(classes[i]) & mMask;
+                while (mKeys[slot] != null && mKeys[slot] != classes[i]) {
+                    slot = (slot + 1) & mMask;
+                }
+
+                if (mKeys[slot] == null) {
+                    mKeys[slot] = classes[i];
+                    mValues[slot] = i;
+                }
+            }
+        }
+
+        @NonNull
+        List<Class<? extends SugarHolder>> getClasses() {
+            return mClasses;
+        }
+
+        int indexOf(@NonNull Class clazz) {
+            int slot = hash(clazz) & mMask;
+            while (mKeys[slot] != null) {
+                if (mKeys[slot] == clazz) {
+                    return mValues[slot];
+                }
+
+                slot = (slot + 1) & mMask;
+            }
+
+            return -1;
+        }
+
+        private static int hash(@NonNull Class clazz) {
+            int h = System.identityHashCode(clazz);
+            return h ^ (h >>> 16);
+        }
+    }
+}
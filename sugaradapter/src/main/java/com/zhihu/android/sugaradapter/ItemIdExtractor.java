@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+// generated for data class with @ItemId, as XxxData$ItemIdExtractorImpl
+public interface ItemIdExtractor<T> {
+    long getItemId(@NonNull T data);
+
+    static long of(@Nullable Number number) {
+        return number != null ? number.longValue() : RecyclerView.NO_ID;
+    }
+
+    // 64-bit FNV-1a, collision is much rarer than String#hashCode()
+    static long hash(@Nullable CharSequence sequence) {
+        if (sequence == null) {
+            return RecyclerView.NO_ID;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < sequence.length(); i++) {
+            hash ^= sequence.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    static long hash(@Nullable Object object) {
+        return object != null ? hash(object.toString()) : RecyclerView.NO_ID;
+    }
+}
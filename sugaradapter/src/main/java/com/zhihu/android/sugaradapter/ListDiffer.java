@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// diff submitted list with the current one in background, only the latest submitted list is dispatched
+class ListDiffer {
+    // thrown in DiffUtil.Callback to stop an outdated diff
+    private static class CancelledException extends RuntimeException {
+        CancelledException() {
+            super(null, null, false, false);
+        }
+    }
+
+    // items of different classes are never the same
+    private static final SugarAdapter.DiffCallback<Object> DIFFERENT = new SugarAdapter.DiffCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            return false;
+        }
+    };
+
+    // DiffCallback from generated @ItemId and @Diffable
+    private static class GeneratedDiffCallback extends SugarAdapter.DiffCallback<Object> {
+        private ItemIdExtractor<Object> mItemIdExtractor;
+        private ChangeComparator<Object> mChangeComparator;
+
+        private GeneratedDiffCallback(@Nullable ItemIdExtractor<Object> itemIdExtractor,
+                                      @Nullable ChangeComparator<Object> changeComparator) {
+            mItemIdExtractor = itemIdExtractor;
+            mChangeComparator = changeComparator;
+        }
+
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (mItemIdExtractor != null) {
+                return mItemIdExtractor.getItemId(oldItem) == mItemIdExtractor.getItemId(newItem);
+            } else {
+                return oldItem.equals(newItem);
+            }
+        }
+
+        // data class may not override equals(), ChangeComparator knows it better
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (mChangeComparator != null) {
+                ChangeSet changeSet = mChangeComparator.compare(oldItem, newItem);
+                return changeSet != null && changeSet.isEmpty();
+            } else {
+                return oldItem.equals(newItem);
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull Object oldItem, @NonNull Object newItem) {
+            return mChangeComparator != null ? mChangeComparator.compare(oldItem, newItem) : null;
+        }
+    }
+
+    private SugarAdapter mAdapter;
+    private Executor mExecutor;
+    private Handler mMainHandler;
+    private volatile int mGeneration;
+
+    ListDiffer(@NonNull SugarAdapter adapter, @NonNull Executor executor) {
+        mAdapter = adapter;
+        mExecutor = executor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    static SugarAdapter.DiffCallback<?> createGeneratedCallback(
+            @Nullable ItemIdExtractor itemIdExtractor, @Nullable ChangeComparator changeComparator) {
+        if (itemIdExtractor == null && changeComparator == null) {
+            return null;
+        }
+
+        return new GeneratedDiffCallback(itemIdExtractor, changeComparator);
+    }
+
+    @MainThread
+    void submit(@NonNull List<?> oldList, @NonNull List<?> newList,
+                @NonNull Map<Class<?>, SugarAdapter.DiffCallback<?>> callbackMap, @Nullable Runnable callback) {
+        int generation = ++mGeneration;
+
+        if (oldList == newList) {
+            if (callback != null) {
+                callback.run();
+            }
+            return;
+        }
+
+        // no need to diff
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            mAdapter.commitList(newList, null, oldList.size(), callback);
+            return;
+        }
+
+        mExecutor.execute(() -> {
+            DiffUtil.DiffResult result;
+            try {
+                result = diff(oldList, newList, callbackMap, generation);
+            } catch (@NonNull CancelledException e) {
+                return;
+            }
+
+            mMainHandler.post(() -> {
+                if (generation == mGeneration) {
+                    mAdapter.commitList(newList, result, oldList.size(), callback);
+                }
+            });
+        });
+    }
+
+    @WorkerThread
+    @NonNull
+    private DiffUtil.DiffResult diff(
+            @NonNull List<?> oldList, @NonNull List<?> newList,
+            @NonNull Map<Class<?>, SugarAdapter.DiffCallback<?>> callbackMap, int generation) {
+        // resolved by data class and its superclasses, the latest registered the first match
+        Map<Class<?>, SugarAdapter.DiffCallback<?>> resolvedMap = new HashMap<>();
+
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                Object oldItem = oldList.get(oldItemPosition);
+                Object newItem = newList.get(newItemPosition);
+                SugarAdapter.DiffCallback<Object> callback = resolve(oldItem, newItem);
+                return callback != null ? callback.areItemsTheSame(oldItem, newItem) : oldItem.equals(newItem);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                Object oldItem = oldList.get(oldItemPosition);
+                Object newItem = newList.get(newItemPosition);
+                SugarAdapter.DiffCallback<Object> callback = resolve(oldItem, newItem);
+                return callback == null || callback.areContentsTheSame(oldItem, newItem);
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                Object oldItem = oldList.get(oldItemPosition);
+                Object newItem = newList.get(newItemPosition);
+                SugarAdapter.DiffCallback<Object> callback = resolve(oldItem, newItem);
+                return callback != null ? callback.getChangePayload(oldItem, newItem) : null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Nullable
+            private SugarAdapter.DiffCallback<Object> resolve(@NonNull Object oldItem, @NonNull Object newItem) {
+                if (generation != mGeneration) {
+                    throw new CancelledException();
+                }
+
+                Class<?> clazz = oldItem.getClass();
+                if (clazz != newItem.getClass()) {
+                    return DIFFERENT;
+                }
+
+                if (!resolvedMap.containsKey(clazz)) {
+                    SugarAdapter.DiffCallback<?> callback = null;
+                    for (Class<?> temp = clazz; temp != null && callback == null; temp = temp.getSuperclass()) {
+                        callback = callbackMap.get(temp);
+                    }
+
+                    resolvedMap.put(clazz, callback);
+                }
+
+                return (SugarAdapter.DiffCallback<Object>) resolvedMap.get(clazz);
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+
+public interface PagedSource<T> {
+    // known or estimated count, corrected by pages loaded
+    @MainThread
+    @IntRange(from = 0)
+    int getCount();
+
+    // return fewer items than count at the end of data
+    @WorkerThread
+    @NonNull
+    List<T> loadPage(@IntRange(from = 0) int position, @IntRange(from = 1) int count);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+// key is layoutRes for View, or view type for SugarHolder when preCreateHolder;
+// keys are fixed when constructed, so it's safe to share between threads
+class PreInflatePool {
+    private SparseArray<ArrayBlockingQueue<Object>> mQueueArray;
+
+    PreInflatePool(@NonNull SparseIntArray depthArray) {
+        mQueueArray = new SparseArray<>(depthArray.size());
+        for (int i = 0; i < depthArray.size(); i++) {
+            int depth = depthArray.valueAt(i);
+            if (depth > 0) {
+                mQueueArray.put(depthArray.keyAt(i), new ArrayBlockingQueue<>(depth));
+            }
+        }
+    }
+
+    int size() {
+        return mQueueArray.size();
+    }
+
+    int keyAt(int index) {
+        return mQueueArray.keyAt(index);
+    }
+
+    int indexOfKey(int key) {
+        return mQueueArray.indexOfKey(key);
+    }
+
+    boolean contains(int key) {
+        return mQueueArray.indexOfKey(key) >= 0;
+    }
+
+    @Nullable
+    Object acquire(int key) {
+        ArrayBlockingQueue<Object> queue = mQueueArray.get(key);
+        return queue != null ? queue.poll() : null;
+    }
+
+    // return false if pool of key is full
+    boolean release(int key, @NonNull Object item) {
+        ArrayBlockingQueue<Object> queue = mQueueArray.get(key);
+        return queue != null && queue.offer(item);
+    }
+
+    @IntRange(from = 0)
+    int getDepth(int key) {
+        ArrayBlockingQueue<Object> queue = mQueueArray.get(key);
+        return queue != null ? queue.size() : 0;
+    }
+
+    boolean isFull(int key) {
+        ArrayBlockingQueue<Object> queue = mQueueArray.get(key);
+        return queue == null || queue.remainingCapacity() <= 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < mQueueArray.size(); i++) {
+            mQueueArray.valueAt(i).clear();
+        }
+    }
+}
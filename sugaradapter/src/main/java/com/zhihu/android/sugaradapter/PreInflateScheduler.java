@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// one bounded executor for all SugarAdapters, each PreInflateTask only inflates
+// one view per turn and then goes back to the tail of queue, so adapters are fair
+class PreInflateScheduler {
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private ThreadPoolExecutor mExecutor;
+
+    PreInflateScheduler(@IntRange(from = 1) int threadCount) {
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), PreInflateThread::new);
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    void setThreadCount(@IntRange(from = 1) int threadCount) {
+        if (threadCount > mExecutor.getMaximumPoolSize()) {
+            mExecutor.setMaximumPoolSize(threadCount);
+            mExecutor.setCorePoolSize(threadCount);
+        } else {
+            mExecutor.setCorePoolSize(threadCount);
+            mExecutor.setMaximumPoolSize(threadCount);
+        }
+    }
+
+    void execute(@NonNull PreInflateTask task) {
+        mExecutor.execute(task);
+    }
+
+    void remove(@NonNull PreInflateTask task) {
+        mExecutor.remove(task);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// pre-inflate views (or create holders) of one SugarAdapter,
+// at most one worker runs it at the same time
+class PreInflateTask implements Runnable {
+    private static final String TAG = "PreInflateTask";
+
+    private PreInflateScheduler mScheduler;
+    private PreInflatePool mPool;
+    private SparseArray<Container> mContainerArray;
+    private boolean mPreCreateHolder;
+    // view types whose holders failed to construct off main thread, only views are pre-inflated then
+    private SparseBooleanArray mCreateFailedArray;
+    // keys whose views failed to inflate off main thread, never pre-inflated again
+    private SparseBooleanArray mInflateFailedArray;
+    private List<SugarAdapter.PreInflateListener> mListenerList;
+    private ViewGroup mParent;
+    private LayoutInflater mInflater;
+
+    private Queue<Integer> mRequestQueue;
+    private AtomicBoolean mScheduled;
+    private volatile boolean mCancelled;
+    private int mNextIndex;
+
+    PreInflateTask(
+            @NonNull PreInflateScheduler scheduler,
+            @NonNull ViewGroup parent,
+            @NonNull PreInflatePool pool,
+            @NonNull Container[] containers,
+            boolean preCreateHolder,
+            @NonNull List<SugarAdapter.PreInflateListener> listenerList
+    ) {
+        mScheduler = scheduler;
+        mPool = pool;
+        mPreCreateHolder = preCreateHolder;
+        mListenerList = listenerList;
+        mParent = parent;
+        mInflater = LayoutInflater.from(parent.getContext());
+        mRequestQueue = new ConcurrentLinkedQueue<>();
+        mScheduled = new AtomicBoolean();
+        mCreateFailedArray = new SparseBooleanArray();
+        mInflateFailedArray = new SparseBooleanArray();
+
+        // key is view type when preCreateHolder, otherwise layoutRes
+        mContainerArray = new SparseArray<>();
+        for (Container container : containers) {
+            if (container != null) {
+                mContainerArray.put(preCreateHolder ? container.getViewType() : container.getLayoutRes(), container);
+            }
+        }
+    }
+
+    void start() {
+        schedule();
+    }
+
+    // refill key before other keys
+    void inflate(int key) {
+        if (!mCancelled) {
+            mRequestQueue.offer(key);
+            schedule();
+        }
+    }
+
+    void cancel() {
+        mCancelled = true;
+        mRequestQueue.clear();
+        mScheduler.remove(this);
+    }
+
+    @WorkerThread
+    @Override
+    public void run() {
+        if (mCancelled) {
+            return;
+        }
+
+        int index = nextIndex();
+        try {
+            if (index >= 0) {
+                inflateView(mPool.keyAt(index));
+            }
+        } finally {
+            mScheduled.set(false);
+        }
+
+        if (nextIndex(mNextIndex) >= 0) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!mCancelled && mScheduled.compareAndSet(false, true)) {
+            mScheduler.execute(this);
+        }
+    }
+
+    private int nextIndex() {
+        Integer key;
+        while ((key = mRequestQueue.poll()) != null) {
+            if (isPending(key)) {
+                return mPool.indexOfKey(key);
+            }
+        }
+
+        int index = nextIndex(mNextIndex);
+        if (index >= 0) {
+            mNextIndex = index + 1;
+        }
+
+        return index;
+    }
+
+    // round robin between keys, -1 if all pools are full
+    private int nextIndex(int start) {
+        int size = mPool.size();
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (isPending(mPool.keyAt(index))) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isPending(int key) {
+        return !mInflateFailedArray.get(key) && !mPool.isFull(key);
+    }
+
+    private void inflateView(int key) {
+        Container container = mContainerArray.get(key);
+        int layoutRes = container.getLayoutRes();
+        View view;
+        try {
+            view = container.inflateView(mInflater, mParent);
+        } catch (@NonNull Exception e) {
+            // optional too, SugarAdapter inflates views of the key on main thread as fallback
+            Log.e(TAG, "preInflate failed, layoutRes: 0x" + Integer.toHexString(layoutRes), e);
+            mInflateFailedArray.put(key, true);
+            return;
+        }
+
+        Object item = view;
+        if (mPreCreateHolder && !mCreateFailedArray.get(key)) {
+            try {
+                // only OnCreatedCallback and lifecycle events are left to main thread
+                item = container.createHolder(view);
+            } catch (@NonNull Exception e) {
+                // optional, SugarAdapter constructs holder of the view on main thread as fallback
+                Log.e(TAG, "preCreateHolder failed, holder: "
+                        + container.getHolderClass().getCanonicalName(), e);
+                mCreateFailedArray.put(key, true);
+            }
+        }
+
+        if (mCancelled || !mPool.release(key, item)) {
+            return;
+        }
+
+        for (SugarAdapter.PreInflateListener listener : mListenerList) {
+            if (listener != null) {
+                listener.onPreInflateExecuted(layoutRes);
+            }
+        }
+    }
+}
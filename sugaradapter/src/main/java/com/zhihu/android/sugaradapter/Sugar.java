@@ -16,52 +16,149 @@
 
 package com.zhihu.android.sugaradapter;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public enum Sugar {
     INSTANCE;
 
-    private ContainerDelegate mContainerDelegate;
-    private Map<Class<? extends SugarHolder>, InjectDelegate> mInjectMap;
+    private volatile ContainerDelegate mContainerDelegate;
+    private PreInflateScheduler mPreInflateScheduler;
+    private int mPreInflateThreadCount;
+    private Executor mDiffExecutor;
+    private Executor mPageExecutor;
+    private Executor mPrepareExecutor;
+
+    // threads shared by all SugarAdapters for preInflate
+    public synchronized void setPreInflateThreadCount(@IntRange(from = 1) int count) {
+        mPreInflateThreadCount = Math.max(count, 1);
+        if (mPreInflateScheduler != null) {
+            mPreInflateScheduler.setThreadCount(mPreInflateThreadCount);
+        }
+    }
 
     @NonNull
-    public ContainerDelegate getContainerDelegate() {
-        if (mContainerDelegate == null) {
-            try {
-                Class delegateClass = Class.forName("com.zhihu.android.sugaradapter.ContainerDelegateImpl");
-                mContainerDelegate = (ContainerDelegate) delegateClass.newInstance();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    synchronized PreInflateScheduler getPreInflateScheduler() {
+        if (mPreInflateScheduler == null) {
+            if (mPreInflateThreadCount <= 0) {
+                mPreInflateThreadCount = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
             }
+
+            mPreInflateScheduler = new PreInflateScheduler(mPreInflateThreadCount);
         }
 
-        return mContainerDelegate;
+        return mPreInflateScheduler;
     }
 
-    @Nullable
-    public <T extends SugarHolder> InjectDelegate getInjectDelegate(@NonNull T t) {
-        if (mInjectMap == null) {
-            mInjectMap = new HashMap<>();
+    // executor shared by all SugarAdapters for submitList
+    public synchronized void setDiffExecutor(@NonNull Executor executor) {
+        mDiffExecutor = executor;
+    }
+
+    @NonNull
+    synchronized Executor getDiffExecutor() {
+        if (mDiffExecutor == null) {
+            mDiffExecutor = newBackgroundExecutor("SugarAdapter-Diff-", 1);
+        }
+
+        return mDiffExecutor;
+    }
+
+    // executor shared by all SugarPagedLists without their own executor
+    public synchronized void setPageExecutor(@NonNull Executor executor) {
+        mPageExecutor = executor;
+    }
+
+    @NonNull
+    synchronized Executor getPageExecutor() {
+        if (mPageExecutor == null) {
+            mPageExecutor = newBackgroundExecutor("SugarAdapter-Page-", 1);
+        }
+
+        return mPageExecutor;
+    }
+
+    // executor shared by all SugarAdapters for Preparer
+    public synchronized void setPrepareExecutor(@NonNull Executor executor) {
+        mPrepareExecutor = executor;
+    }
+
+    @NonNull
+    synchronized Executor getPrepareExecutor() {
+        if (mPrepareExecutor == null) {
+            int count = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+            mPrepareExecutor = newBackgroundExecutor("SugarAdapter-Prepare-", count);
         }
 
-        if (mInjectMap.containsKey(t.getClass())) {
-            return mInjectMap.get(t.getClass());
+        return mPrepareExecutor;
+    }
+
+    @NonNull
+    private static Executor newBackgroundExecutor(@NonNull String prefix, int threadCount) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // trace sections of create, bind, inflate and inject for systrace or Perfetto,
+    // e.g. enable it in profileable builds only
+    public void setTraceEnabled(boolean enabled) {
+        SugarTrace.sEnabled = enabled;
+    }
+
+    // load all generated delegates ahead, e.g. in Application#onCreate(),
+    // ContainerDelegateImpl is lazy, so touch the class index and per holder tables of all modules
+    @WorkerThread
+    public void preload() {
+        ContainerDelegate delegate = getContainerDelegate();
+        for (Class<? extends SugarHolder> holderClass : delegate.getHolderClassList()) {
+            delegate.getHolderFactory(holderClass);
+            delegate.getLayoutFactory(holderClass);
+            delegate.getInjectDelegate(holderClass);
+            delegate.getItemIdExtractor(holderClass);
+            delegate.getChangeComparator(holderClass);
         }
+    }
 
-        try {
-            Class delegateClass = Class.forName(t.getClass().getCanonicalName() + "$InjectDelegateImpl");
-            InjectDelegate delegate = (InjectDelegate) delegateClass.newInstance();
-            mInjectMap.put(t.getClass(), delegate);
-            return delegate;
-        } catch (Exception e) {
-            // e.printStackTrace();
-            // noinspection ConstantConditions
-            mInjectMap.put(t.getClass(), null);
-            return null;
+    // the only reflection, ContainerDelegateImpl references all generated classes of sub modules
+    @NonNull
+    public ContainerDelegate getContainerDelegate() {
+        ContainerDelegate delegate = mContainerDelegate;
+        if (delegate == null) {
+            synchronized (this) {
+                delegate = mContainerDelegate;
+                if (delegate == null) {
+                    try {
+                        Class delegateClass = Class.forName("com.zhihu.android.sugaradapter.ContainerDelegateImpl");
+                        delegate = (ContainerDelegate) delegateClass.newInstance();
+                        mContainerDelegate = delegate;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
         }
+
+        return delegate;
+    }
+
+    // holders may be constructed by PreInflateThread
+    @Nullable
+    public <T extends SugarHolder> InjectDelegate getInjectDelegate(@NonNull T t) {
+        return getContainerDelegate().getInjectDelegate(t.getClass());
     }
 }
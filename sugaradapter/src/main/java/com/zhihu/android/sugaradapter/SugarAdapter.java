@@ -18,11 +18,12 @@
 package com.zhihu.android.sugaradapter;
 
 import android.util.Log;
-import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
 import androidx.annotation.LayoutRes;
 import androidx.annotation.MainThread;
@@ -30,25 +31,36 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.Lifecycle;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @SuppressWarnings({"rawtypes", "unused", "WeakerAccess"})
 public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
     private static final String TAG = "SugarAdapter";
+    private static final SugarHolderListener[] NO_SUGAR_HOLDER_LISTENERS = new SugarHolderListener[0];
 
     public static final class Builder {
         private List<?> mList;
-        private SparseArray<Container> mContainerArray;
-        private boolean mPreInflate;
-
+        private List<Container> mContainerList;
+        private Map<Class<? extends SugarHolder>, Integer> mPreInflateDepthMap;
+        private int mPreInflateDepth;
+        private boolean mPreCreateHolder;
+        private boolean mStableIds;
+        private int mMetricsSampleInterval;
+
+        // with SugarList or SugarPagedList, there is no need to call notify* methods
         @NonNull
         public static Builder with(@NonNull List<?> list) {
             return new Builder(list);
@@ -56,7 +68,8 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
 
         private Builder(@NonNull List<?> list) {
             mList = list;
-            mContainerArray = new SparseArray<>();
+            mContainerList = new ArrayList<>();
+            mPreInflateDepthMap = new HashMap<>();
         }
 
         @NonNull
@@ -70,29 +83,141 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
             ContainerDelegate delegate = Sugar.INSTANCE.getContainerDelegate();
             Class dataClass = delegate.getDataClass(holderClass);
             int layoutRes = delegate.getLayoutRes(holderClass);
+            int viewType = delegate.getViewType(holderClass);
 
-            if (layoutRes == 0) {
+            if (layoutRes == 0 || viewType < 0) {
                 throw new IllegalStateException(holderClass.getCanonicalName()
                         + " must have an annotation @Layout(R.layout.*)");
             }
 
-            mContainerArray.put(holderClass.hashCode(), new Container(holderClass, dataClass, layoutRes, callback));
+            HolderFactory holderFactory = delegate.getHolderFactory(holderClass);
+            LayoutFactory layoutFactory = delegate.getLayoutFactory(holderClass);
+            ItemIdExtractor itemIdExtractor = delegate.getItemIdExtractor(holderClass);
+            ChangeComparator changeComparator = delegate.getChangeComparator(holderClass);
+            mContainerList.add(new Container(holderClass, dataClass, layoutRes, viewType,
+                    callback, holderFactory, layoutFactory, itemIdExtractor, changeComparator));
             return this;
         }
 
         @NonNull
         public <SH extends SugarHolder> Builder preInflate(boolean enable) {
-            mPreInflate = enable;
+            return preInflate(enable ? 1 : 0);
+        }
+
+        // keep at most depth views per layout, 0 means disable
+        @NonNull
+        public Builder preInflate(@IntRange(from = 0) int depth) {
+            mPreInflateDepth = Math.max(depth, 0);
+            return this;
+        }
+
+        // override the default depth for holderClass
+        @NonNull
+        public <SH extends SugarHolder> Builder preInflate(
+                @NonNull Class<SH> holderClass, @IntRange(from = 0) int depth) {
+            mPreInflateDepthMap.put(holderClass, Math.max(depth, 0));
+            return this;
+        }
+
+        // construct the whole holder (inflate, inject and constructor) in background when preInflate,
+        // holder must be safe to construct off main thread
+        @NonNull
+        public Builder preCreateHolder(boolean enable) {
+            mPreCreateHolder = enable;
+            return this;
+        }
+
+        // only enabled when data classes of all holders have @ItemId
+        @NonNull
+        public Builder stableIds(boolean enable) {
+            mStableIds = enable;
+            return this;
+        }
+
+        // record per view type metrics, see SugarAdapter#getMetrics()
+        @NonNull
+        public Builder metrics(boolean enable) {
+            return metrics(enable ? 1 : 0);
+        }
+
+        // time 1 in sampleInterval inflate, create and bind, 0 to disable
+        @NonNull
+        public Builder metrics(@IntRange(from = 0) int sampleInterval) {
+            mMetricsSampleInterval = Math.max(sampleInterval, 0);
             return this;
         }
 
         @NonNull
         public SugarAdapter build() {
-            if (mContainerArray.size() <= 0) {
+            if (mContainerList.isEmpty()) {
                 throw new IllegalStateException("must add at least one Class<? extends SugarHolder>");
             }
 
-            return new SugarAdapter(mList, mContainerArray, mPreInflate);
+            int size = 0;
+            for (Container container : mContainerList) {
+                size = Math.max(size, container.getViewType() + 1);
+            }
+
+            // view type is a dense index generated by SugarProcessor,
+            // the latest add the first match
+            Container[] containers = new Container[size];
+            Map<Class<?>, Integer> viewTypeMap = new HashMap<>();
+            for (Container container : mContainerList) {
+                containers[container.getViewType()] = container;
+                viewTypeMap.put(container.getDataClass(), container.getViewType());
+            }
+
+            // holders with same layout share one pool, unless preCreateHolder
+            boolean preInflate = false;
+            SparseIntArray preInflateDepthArray = new SparseIntArray();
+            for (Container container : containers) {
+                if (container == null) {
+                    continue;
+                }
+
+                Integer depth = mPreInflateDepthMap.get(container.getHolderClass());
+                if (depth == null) {
+                    depth = mPreInflateDepth;
+                }
+
+                int key = mPreCreateHolder ? container.getViewType() : container.getLayoutRes();
+                preInflateDepthArray.put(key, Math.max(depth, preInflateDepthArray.get(key)));
+                preInflate |= depth > 0;
+            }
+
+            SugarMetrics metrics = null;
+            if (mMetricsSampleInterval > 0) {
+                metrics = new SugarMetrics(containers, mMetricsSampleInterval);
+                if (preInflate) {
+                    for (Container container : containers) {
+                        if (container == null) {
+                            continue;
+                        }
+
+                        int key = mPreCreateHolder ? container.getViewType() : container.getLayoutRes();
+                        if (preInflateDepthArray.get(key) > 0) {
+                            metrics.addLayout(container.getLayoutRes());
+                        }
+                    }
+                }
+            }
+
+            SugarAdapter adapter = new SugarAdapter(mList, containers, viewTypeMap,
+                    preInflate ? preInflateDepthArray : null, mPreCreateHolder, metrics);
+            if (mStableIds) {
+                boolean stableIds = true;
+                for (Container container : mContainerList) {
+                    if (container.getItemIdExtractor() == null) {
+                        Log.w(TAG, "stableIds disabled, no @ItemId in "
+                                + container.getDataClass().getCanonicalName());
+                        stableIds = false;
+                    }
+                }
+
+                adapter.setHasStableIds(stableIds);
+            }
+
+            return adapter;
         }
     }
 
@@ -106,48 +231,71 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
         void onPreInflateExecuted(@LayoutRes int layoutRes);
         @MainThread
         void onPreInflateConsumed(@LayoutRes int layoutRes, boolean fallback);
+
+        // depth is the count of views left in pool after consumed
+        @MainThread
+        default void onPreInflateConsumed(@LayoutRes int layoutRes, boolean fallback, int depth) {
+            onPreInflateConsumed(layoutRes, fallback);
+        }
     }
 
     public static abstract class Dispatcher<T> {
+        private Class<?> mDataClass;
+
+        // data class is read from the type argument of subclass, requires Signature attribute kept,
+        // prefer Dispatcher(Class) which has no reflection and works with obfuscation
+        public Dispatcher() {}
+
+        public Dispatcher(@NonNull Class<T> dataClass) {
+            mDataClass = dataClass;
+        }
+
         // return null to use default rule
         @Nullable
         public abstract Class<? extends SugarHolder> dispatch(@NonNull T data);
+    }
 
-        // https://stackoverflow.com/q/3437897
-        @Deprecated
-        @NonNull
-        private Class<T> ofType() {
-            try {
-                // noinspection ConstantConditions
-                String className = ((ParameterizedType) getClass().getGenericSuperclass())
-                        .getActualTypeArguments()[0].toString().split(" ")[1];
-                // noinspection unchecked
-                return (Class<T>) Class.forName(className);
-            } catch (@NonNull Exception e) {
-                throw new RuntimeException(e);
-            }
+    // called in background, items are never null
+    public static abstract class DiffCallback<T> {
+        public abstract boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem);
+        public abstract boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem);
+
+        @Nullable
+        public Object getChangePayload(@NonNull T oldItem, @NonNull T newItem) {
+            return null;
         }
     }
 
+    // prepare data in background for binding, e.g. text layout, spans and date formatting,
+    // should depend on data only, it's called inline if not prepared ahead
+    public interface Preparer<T, P> {
+        @AnyThread
+        @NonNull
+        P prepare(@NonNull T data);
+    }
+
     public static abstract class SugarHolderListener<SH extends SugarHolder> {
-        private Class<SH> mSugarHolderClass = ofType();
+        private Class<?> mSugarHolderClass;
+
+        // holder class is read from the type argument of subclass, requires Signature attribute kept,
+        // prefer SugarHolderListener(Class) which has no reflection and works with obfuscation
+        public SugarHolderListener() {}
+
+        public SugarHolderListener(@NonNull Class<SH> sugarHolderClass) {
+            mSugarHolderClass = sugarHolderClass;
+        }
 
-        // https://stackoverflow.com/q/3437897
         @NonNull
-        private Class<SH> ofType() {
-            try {
-                // noinspection ConstantConditions
-                String className = ((ParameterizedType) getClass().getGenericSuperclass())
-                        .getActualTypeArguments()[0].toString().split(" ")[1];
-                // noinspection unchecked
-                return (Class<SH>) Class.forName(className);
-            } catch (@NonNull Exception e) {
-                throw new RuntimeException(e);
+        private Class<?> getSugarHolderClass() {
+            if (mSugarHolderClass == null) {
+                mSugarHolderClass = ofType(getClass(), "SugarHolderListener");
             }
+
+            return mSugarHolderClass;
         }
 
         private boolean isInstance(@Nullable Object object) {
-            return mSugarHolderClass.isInstance(object);
+            return getSugarHolderClass().isInstance(object);
         }
 
         public void onSugarHolderCreated(@NonNull SH holder) {}
@@ -158,40 +306,69 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
     }
 
     private List<?> mList;
-    private SparseArray<Container> mContainerArray;
+    private SugarList<?> mSugarList;
+    private SugarPagedList<?> mPagedList;
+    private ListUpdateCallback mListUpdateCallback;
+    private Container[] mContainers;
+    private Map<Class<?>, Integer> mViewTypeMap;
     private Map<Class<?>, Dispatcher<?>> mDispatcherMap;
+    private Map<Class<?>, DiffCallback<?>> mDiffCallbackMap;
+    private ListDiffer mListDiffer;
+    private DataPreparer mDataPreparer;
+    private ViewTypeCache mViewTypeCache;
     private List<ExtraDelegate> mExtraDelegateList;
     private List<PreInflateListener> mPreInflateListenerList;
     private List<SugarHolderListener<?>> mSugarHolderListenerList;
+    private SugarHolderListener[][] mSugarHolderListenerTable;
 
-    private SparseArray<AtomicReference<View>> mPreInflateArray;
-    private PreInflateThread mPreInflateThread;
+    private PreInflatePool mPreInflatePool;
+    private PreInflateTask mPreInflateTask;
+    private boolean mPreCreateHolder;
     private LayoutInflater mInflater;
+    private SugarMetrics mMetrics;
 
-    private SugarAdapter(@NonNull List<?> list, @NonNull SparseArray<Container> containerArray, boolean preInflate) {
+    private SugarAdapter(@NonNull List<?> list, @NonNull Container[] containers,
+                         @NonNull Map<Class<?>, Integer> viewTypeMap,
+                         @Nullable SparseIntArray preInflateDepthArray, boolean preCreateHolder,
+                         @Nullable SugarMetrics metrics) {
         mList = list;
-        mContainerArray = containerArray;
+        if (list instanceof SugarList) {
+            mSugarList = (SugarList<?>) list;
+            mList = mSugarList.getDispatchedList();
+            mListUpdateCallback = new AdapterListUpdateCallback(this);
+            mSugarList.addCallback(mListUpdateCallback);
+        } else if (list instanceof SugarPagedList) {
+            mPagedList = (SugarPagedList<?>) list;
+            mListUpdateCallback = new AdapterListUpdateCallback(this);
+            mPagedList.addCallback(mListUpdateCallback);
+        }
+
+        mContainers = containers;
+        mViewTypeMap = viewTypeMap;
         mDispatcherMap = new HashMap<>();
+        mDiffCallbackMap = new HashMap<>();
+        mViewTypeCache = new ViewTypeCache();
+        registerAdapterDataObserver(mViewTypeCache);
+        mDataPreparer = new DataPreparer(this);
+        registerAdapterDataObserver(mDataPreparer);
         mExtraDelegateList = new ArrayList<>();
-        mPreInflateListenerList = new ArrayList<>();
+        mPreInflateListenerList = new CopyOnWriteArrayList<>();
         mSugarHolderListenerList = new ArrayList<>();
+        mSugarHolderListenerTable = new SugarHolderListener[containers.length][];
 
-        if (!preInflate) return;
-        mPreInflateArray = new SparseArray<>();
-
-        for (int i = 0; i < mContainerArray.size(); i++) {
-            int key = mContainerArray.keyAt(i);
-            Container container = mContainerArray.get(key);
-            mPreInflateArray.put(container.getLayoutRes(), null);
+        if (preInflateDepthArray != null) {
+            mPreInflatePool = new PreInflatePool(preInflateDepthArray);
+            mPreCreateHolder = preCreateHolder;
         }
+
+        mMetrics = metrics;
     }
 
     // <editor-fold desc="Dispatcher">
 
-    @Deprecated
     @NonNull
     public <T> SugarAdapter addDispatcher(@NonNull Dispatcher<T> dispatcher) {
-        return addDispatcher(dispatcher.ofType(), dispatcher);
+        return addDispatcher(getDataClass(dispatcher), dispatcher);
     }
 
     @NonNull
@@ -203,24 +380,55 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
         }
 
         mDispatcherMap.put(clazz, dispatcher);
+        mViewTypeCache.clear();
         return this;
     }
 
-    @Deprecated
     @NonNull
     public <T> SugarAdapter removeDispatcher(@NonNull Dispatcher<T> dispatcher) {
-        return removeDispatcher(dispatcher.ofType());
+        return removeDispatcher(getDataClass(dispatcher));
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static <T> Class<T> getDataClass(@NonNull Dispatcher<T> dispatcher) {
+        if (dispatcher.mDataClass == null) {
+            dispatcher.mDataClass = ofType(dispatcher.getClass(), "Dispatcher");
+        }
+
+        return (Class<T>) dispatcher.mDataClass;
+    }
+
+    // the first type argument of direct subclass, https://stackoverflow.com/q/3437897
+    @NonNull
+    private static Class<?> ofType(@NonNull Class<?> clazz, @NonNull String baseName) {
+        Type type = clazz.getGenericSuperclass();
+        if (type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof ParameterizedType) {
+                argument = ((ParameterizedType) argument).getRawType();
+            }
+
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+
+        throw new IllegalStateException(clazz.getName() + " has no type argument of " + baseName
+                + ", use " + baseName + "(Class) instead");
     }
 
     @NonNull
     public <T> SugarAdapter removeDispatcher(@NonNull Class<T> clazz) {
         mDispatcherMap.remove(clazz);
+        mViewTypeCache.clear();
         return this;
     }
 
     @NonNull
     public SugarAdapter clearDispatcher() {
         mDispatcherMap.clear();
+        mViewTypeCache.clear();
         return this;
     }
 
@@ -279,13 +487,16 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
     public SugarAdapter clearPreInflateViews() {
         clearPreInflateListener();
 
-        if (mPreInflateThread != null) {
-            mPreInflateThread.clear();
-            mPreInflateThread.interrupt();
-            mPreInflateThread = null;
+        if (mPreInflateTask != null) {
+            mPreInflateTask.cancel();
+            mPreInflateTask = null;
+        }
+
+        if (mPreInflatePool != null) {
+            mPreInflatePool.clear();
+            mPreInflatePool = null;
         }
 
-        mPreInflateArray = null;
         return this;
     }
 
@@ -297,7 +508,10 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
     @NonNull
     public <SH extends SugarHolder> SugarAdapter addSugarHolderListener(@NonNull SugarHolderListener<SH> listener) {
         if (!mSugarHolderListenerList.contains(listener)) {
+            // fail fast if holder class can't be resolved
+            listener.getSugarHolderClass();
             mSugarHolderListenerList.add(listener);
+            Arrays.fill(mSugarHolderListenerTable, null);
         }
 
         return this;
@@ -305,21 +519,216 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
 
     @NonNull
     public SugarAdapter removeSugarHolderListener(@NonNull SugarHolderListener<?> listener) {
-        mSugarHolderListenerList.remove(listener);
+        if (mSugarHolderListenerList.remove(listener)) {
+            Arrays.fill(mSugarHolderListenerTable, null);
+        }
+
         return this;
     }
 
     @NonNull
     public SugarAdapter clearSugarHolderListener() {
         mSugarHolderListenerList.clear();
+        Arrays.fill(mSugarHolderListenerTable, null);
+        return this;
+    }
+
+    // listeners matching holder, resolved once per view type until listeners changed
+    @NonNull
+    private SugarHolderListener[] getSugarHolderListeners(@NonNull SugarHolder holder) {
+        if (mSugarHolderListenerList.isEmpty()) {
+            return NO_SUGAR_HOLDER_LISTENERS;
+        }
+
+        int viewType = holder.getItemViewType();
+        boolean cacheable = viewType >= 0 && viewType < mSugarHolderListenerTable.length
+                && mContainers[viewType] != null && mContainers[viewType].getHolderClass() == holder.getClass();
+        SugarHolderListener[] listeners = cacheable ? mSugarHolderListenerTable[viewType] : null;
+        if (listeners != null) {
+            return listeners;
+        }
+
+        List<SugarHolderListener> list = new ArrayList<>();
+        for (SugarHolderListener<?> listener : mSugarHolderListenerList) {
+            if (listener.isInstance(holder)) {
+                list.add(listener);
+            }
+        }
+
+        listeners = list.isEmpty() ? NO_SUGAR_HOLDER_LISTENERS : list.toArray(new SugarHolderListener[0]);
+        if (cacheable) {
+            mSugarHolderListenerTable[viewType] = listeners;
+        }
+
+        return listeners;
+    }
+
+    // </editor-fold>
+
+    // <editor-fold desc="Preparer">
+    // prepare in background for items about to be visible
+    @NonNull
+    public <T, SH extends SugarHolder<T>> SugarAdapter addPreparer(
+            @NonNull Class<SH> holderClass, @NonNull Preparer<? super T, ?> preparer) {
+        int viewType = Sugar.INSTANCE.getContainerDelegate().getViewType(holderClass);
+        if (viewType >= 0) {
+            mDataPreparer.put(viewType, preparer);
+        }
+
+        return this;
+    }
+
+    @NonNull
+    public <SH extends SugarHolder> SugarAdapter removePreparer(@NonNull Class<SH> holderClass) {
+        int viewType = Sugar.INSTANCE.getContainerDelegate().getViewType(holderClass);
+        if (viewType >= 0) {
+            mDataPreparer.remove(viewType);
+        }
+
+        return this;
+    }
+
+    // binds with data prepared ahead, others are prepared inline
+    public int getPrepareHitCount() {
+        return mDataPreparer.getHitCount();
+    }
+
+    public int getPrepareMissCount() {
+        return mDataPreparer.getMissCount();
+    }
+    // </editor-fold>
+
+    // null if not enabled by Builder#metrics(int)
+    @Nullable
+    public SugarMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    // <editor-fold desc="SubmitList">
+    // without DiffCallback, items are the same by @ItemId or equals(),
+    // contents are compared by equals() and changed @Diffable are passed as ChangeSet payload,
+    // only if no other field changed
+    @NonNull
+    public <T> SugarAdapter addDiffCallback(@NonNull Class<T> clazz, @NonNull DiffCallback<T> callback) {
+        mDiffCallbackMap.put(clazz, callback);
         return this;
     }
 
+    @NonNull
+    public <T> SugarAdapter removeDiffCallback(@NonNull Class<T> clazz) {
+        mDiffCallbackMap.remove(clazz);
+        return this;
+    }
+
+    @NonNull
+    public SugarAdapter clearDiffCallback() {
+        mDiffCallbackMap.clear();
+        return this;
+    }
+
+    @MainThread
+    public void submitList(@NonNull List<?> list) {
+        submitList(list, null);
+    }
+
+    // diff in background and dispatch updates, don't modify list after submitted;
+    // callback is only called when list is committed, not when it is replaced by a newer submitted one
+    @MainThread
+    public void submitList(@NonNull List<?> list, @Nullable Runnable callback) {
+        if (mPagedList != null) {
+            throw new IllegalStateException("submitList is not supported with SugarPagedList, use refresh()");
+        }
+
+        detachSugarList();
+        if (mListDiffer == null) {
+            mListDiffer = new ListDiffer(this, Sugar.INSTANCE.getDiffExecutor());
+        }
+
+        // snapshot for background, generated ones are used unless DiffCallback is added
+        Map<Class<?>, DiffCallback<?>> callbackMap = new HashMap<>(mDiffCallbackMap);
+        for (Map.Entry<Class<?>, Integer> entry : mViewTypeMap.entrySet()) {
+            Container container = mContainers[entry.getValue()];
+            if (container == null || hasDiffCallback(entry.getKey())) {
+                continue;
+            }
+
+            DiffCallback<?> generated = ListDiffer.createGeneratedCallback(
+                    container.getItemIdExtractor(), container.getChangeComparator());
+            if (generated != null) {
+                callbackMap.put(entry.getKey(), generated);
+            }
+        }
+
+        mListDiffer.submit(mList, list, callbackMap, callback);
+    }
+
+    private boolean hasDiffCallback(@NonNull Class<?> clazz) {
+        for (Class<?> temp = clazz; temp != null; temp = temp.getSuperclass()) {
+            if (mDiffCallbackMap.containsKey(temp)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // the item at position is replaced, bind changed @Diffable only if data class has them
+    // and nothing else changed, otherwise rebind fully,
+    // an empty ChangeSet still binds the new data to holder
+    @SuppressWarnings("unchecked")
+    @MainThread
+    public void notifyItemDataChanged(@IntRange(from = 0) int position, @NonNull Object oldData) {
+        Object data = mList.get(position);
+        ChangeComparator comparator = mContainers[getItemViewType(position)].getChangeComparator();
+        if (comparator != null && data.getClass() == oldData.getClass()) {
+            notifyItemChanged(position, comparator.compare(oldData, data));
+        } else {
+            notifyItemChanged(position);
+        }
+    }
+
+    @MainThread
+    void commitList(@NonNull List<?> list, @Nullable DiffUtil.DiffResult result,
+                    int oldSize, @Nullable Runnable callback) {
+        mList = list;
+        if (result != null) {
+            result.dispatchUpdatesTo(this);
+        } else {
+            if (oldSize > 0) {
+                notifyItemRangeRemoved(0, oldSize);
+            }
+
+            if (!list.isEmpty()) {
+                notifyItemRangeInserted(0, list.size());
+            }
+        }
+
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    // submitList takes over, changes of SugarList are not observed any more
+    private void detachSugarList() {
+        if (mSugarList != null) {
+            mSugarList.flush();
+            mSugarList.removeCallback(mListUpdateCallback);
+            mList = new ArrayList<>(mSugarList);
+            mSugarList = null;
+            mListUpdateCallback = null;
+        }
+    }
     // </editor-fold>
 
     @NonNull
     public List<?> getList() {
-        return mList;
+        return mSugarList != null ? mSugarList : mList;
+    }
+
+    // without loading pages of SugarPagedList, null if not loaded
+    @Nullable
+    Object peekItemAt(@IntRange(from = 0) int position) {
+        return mPagedList != null ? mPagedList.peek(position) : mList.get(position);
     }
 
     @Override
@@ -327,89 +736,184 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
         return mList.size();
     }
 
-    @SuppressWarnings({"ConstantConditions", "unchecked"})
+    @SuppressWarnings("unchecked")
+    @Override
+    public long getItemId(@IntRange(from = 0) int position) {
+        if (!hasStableIds()) {
+            return RecyclerView.NO_ID;
+        }
+
+        // noinspection ConstantConditions
+        return mContainers[getItemViewType(position)].getItemIdExtractor().getItemId(mList.get(position));
+    }
+
     @Override
     public int getItemViewType(@IntRange(from = 0) int position) {
-        Object data = mList.get(position);
+        int viewType = mViewTypeCache.get(position);
+        if (viewType == ViewTypeCache.INVALID_TYPE) {
+            viewType = resolveItemViewType(mList.get(position));
+            mViewTypeCache.put(position, viewType);
+        }
+
+        return viewType;
+    }
+
+    // same as getItemViewType(position), with data got already
+    int getItemViewType(@IntRange(from = 0) int position, @NonNull Object data) {
+        int viewType = mViewTypeCache.get(position);
+        if (viewType == ViewTypeCache.INVALID_TYPE) {
+            viewType = resolveItemViewType(data);
+            mViewTypeCache.put(position, viewType);
+        }
+
+        return viewType;
+    }
 
+    @SuppressWarnings({"ConstantConditions", "unchecked"})
+    private int resolveItemViewType(@NonNull Object data) {
         Class<? extends SugarHolder> holderClass = null;
-        if (mDispatcherMap.containsKey(data.getClass())) {
-            Dispatcher dispatcher = mDispatcherMap.get(data.getClass());
+        Dispatcher dispatcher = mDispatcherMap.get(data.getClass());
+        if (dispatcher != null) {
             holderClass = dispatcher.dispatch(data);
         }
 
         if (holderClass != null) {
-            int key = holderClass.hashCode();
-            if (mContainerArray.indexOfKey(key) < 0) {
+            int key = Sugar.INSTANCE.getContainerDelegate().getViewType(holderClass);
+            if (key < 0 || key >= mContainers.length || mContainers[key] == null) {
                 throw new RuntimeException("getItemViewType() failed, holder: " + holderClass.getCanonicalName()
                         + ", please make sure you have added it when build SugarAdapter.");
             }
 
-            mContainerArray.get(key).setData(data);
             return key;
         }
 
-        for (int i = 0; i < mContainerArray.size(); i++) {
-            int key = mContainerArray.keyAt(i);
-            Container container = mContainerArray.get(key);
-            if (container.getDataClass() == data.getClass()) {
-                container.setData(data);
-                return key;
-            }
+        Integer key = resolveViewType(data.getClass());
+        if (key != null) {
+            return key;
         }
 
         throw new RuntimeException("getItemViewType() failed, data: " + data.getClass().getCanonicalName()
                 + ", please make sure you have associated it with a Class<? extends SugarHolder>");
     }
 
-    @SuppressWarnings("unchecked")
+    // resolve subclass or implementation of registered data class,
+    // then cache the result for its concrete class
+    @Nullable
+    private Integer resolveViewType(@NonNull Class<?> dataClass) {
+        Integer key = mViewTypeMap.get(dataClass);
+        if (key != null) {
+            return key;
+        }
+
+        for (Class<?> clazz = dataClass; clazz != null && key == null; clazz = clazz.getSuperclass()) {
+            key = mViewTypeMap.get(clazz);
+            if (key == null) {
+                key = resolveViewTypeOfInterfaces(clazz.getInterfaces());
+            }
+        }
+
+        if (key != null) {
+            mViewTypeMap.put(dataClass, key);
+        }
+
+        return key;
+    }
+
+    @Nullable
+    private Integer resolveViewTypeOfInterfaces(@NonNull Class<?>[] interfaces) {
+        for (Class<?> clazz : interfaces) {
+            Integer key = mViewTypeMap.get(clazz);
+            if (key == null) {
+                key = resolveViewTypeOfInterfaces(clazz.getInterfaces());
+            }
+
+            if (key != null) {
+                return key;
+            }
+        }
+
+        return null;
+    }
+
     @Override
     @NonNull
     public SugarHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        Container container = mContainerArray.get(viewType);
+        boolean trace = SugarTrace.sEnabled;
+        if (trace) {
+            SugarTrace.begin(mContainers[viewType].getHolderClass(), SugarTrace.CREATE);
+        }
+
+        SugarHolder holder = onCreateViewHolderInternal(parent, viewType);
+        if (trace) {
+            SugarTrace.end();
+        }
+
+        return holder;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private SugarHolder onCreateViewHolderInternal(@NonNull ViewGroup parent, int viewType) {
+        Container container = mContainers[viewType];
 
         try {
-            View view = null;
+            Object item = null;
             int layoutRes = container.getLayoutRes();
+            int key = mPreCreateHolder ? viewType : layoutRes;
 
-            if (mPreInflateArray != null) {
-                AtomicReference<View> viewRef = mPreInflateArray.get(layoutRes);
-                if (viewRef != null) {
-                    view = viewRef.getAndSet(null);
+            if (mPreInflatePool != null && mPreInflatePool.contains(key)) {
+                item = mPreInflatePool.acquire(key);
+                if (mPreInflateTask != null) {
+                    mPreInflateTask.inflate(key);
                 }
 
-                if (mPreInflateThread != null) {
-                    mPreInflateThread.inflate(layoutRes);
+                // a view without holder means preCreateHolder failed
+                boolean fallback = item == null || mPreCreateHolder && !(item instanceof SugarHolder);
+                if (mMetrics != null) {
+                    mMetrics.recordPreInflate(layoutRes, fallback);
                 }
 
+                int depth = mPreInflatePool.getDepth(key);
                 for (PreInflateListener listener : mPreInflateListenerList) {
                     if (listener != null) {
-                        listener.onPreInflateConsumed(layoutRes, view == null);
+                        listener.onPreInflateConsumed(layoutRes, fallback, depth);
                     }
                 }
             }
 
-            if (view == null) {
-                if (mInflater == null) {
-                    mInflater = LayoutInflater.from(parent.getContext());
+            SugarHolder holder;
+            if (item instanceof SugarHolder) {
+                holder = (SugarHolder) item;
+            } else {
+                View view = (View) item;
+                if (view == null) {
+                    if (mInflater == null) {
+                        mInflater = LayoutInflater.from(parent.getContext());
+                    }
+                    long inflateStart = mMetrics != null ? mMetrics.start(SugarMetrics.INFLATE) : 0L;
+                    view = container.inflateView(mInflater, parent);
+                    if (mMetrics != null) {
+                        mMetrics.end(SugarMetrics.INFLATE, viewType, inflateStart);
+                    }
+                }
+
+                long createStart = mMetrics != null ? mMetrics.start(SugarMetrics.CREATE) : 0L;
+                holder = container.createHolder(view);
+                if (mMetrics != null) {
+                    mMetrics.end(SugarMetrics.CREATE, viewType, createStart);
                 }
-                view = mInflater.inflate(layoutRes, parent, false);
             }
 
-            SugarHolder holder = container.getHolderClass().getDeclaredConstructor(View.class).newInstance(view);
             holder.setAdapter(this);
-            holder.setData(container.getData()); // makes SugarHolder#getData non-null
 
             SugarHolder.OnCreatedCallback callback = container.getCallback();
             if (callback != null) {
                 callback.onCreated(holder);
             }
 
-            holder.getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
-            for (SugarHolderListener listener : mSugarHolderListenerList) {
-                if (listener.isInstance(holder)) {
-                    listener.onSugarHolderCreated(holder);
-                }
+            holder.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+            for (SugarHolderListener listener : getSugarHolderListeners(holder)) {
+                listener.onSugarHolderCreated(holder);
             }
 
             return holder;
@@ -431,44 +935,71 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
 
     @SuppressWarnings("unchecked")
     private void onBindViewHolderInternal(@NonNull SugarHolder holder, int position, @Nullable List<Object> payloads) {
+        boolean trace = SugarTrace.sEnabled;
+        if (trace) {
+            SugarTrace.begin(holder.getClass(), SugarTrace.BIND);
+        }
+
         Object data = mList.get(position);
-        holder.setData(data); // double check
+        holder.setData(data);
+        if (mPagedList != null) {
+            mPagedList.bind(holder, position);
+        }
+
+        holder.setPrepared(mDataPreparer.obtain(holder.getItemViewType(), data));
 
+        long bindStart = mMetrics != null ? mMetrics.start(SugarMetrics.BIND) : 0L;
         if (payloads == null || payloads.isEmpty()) {
             holder.onBindData(data, Collections.emptyList());
         } else {
             holder.onBindData(data, payloads);
         }
 
-        holder.getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_START);
+        if (mMetrics != null) {
+            mMetrics.end(SugarMetrics.BIND, holder.getItemViewType(), bindStart);
+        }
 
-        for (SugarHolderListener listener : mSugarHolderListenerList) {
-            if (listener.isInstance(holder)) {
-                listener.onSugarHolderBindData(holder);
-            }
+        holder.handleLifecycleEvent(Lifecycle.Event.ON_START);
+
+        for (SugarHolderListener listener : getSugarHolderListeners(holder)) {
+            listener.onSugarHolderBindData(holder);
+        }
+
+        if (trace) {
+            SugarTrace.end();
         }
     }
 
     @Override
     public void onViewAttachedToWindow(@NonNull SugarHolder holder) {
-        // holder.onViewAttachedToWindow();
+        holder.onViewAttachedToWindow();
+        holder.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        onSugarHolderViewAttachedToWindow(holder);
     }
 
     @Override
     public void onViewDetachedFromWindow(@NonNull SugarHolder holder) {
-        // holder.onViewDetachedFromWindow();
+        holder.handleLifecycleEvent(Lifecycle.Event.ON_PAUSE);
+        holder.onViewDetachedFromWindow();
+        holder.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+        onSugarHolderViewDetachedFromWindow(holder);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public void onViewRecycled(@NonNull SugarHolder holder) {
+        if (mPagedList != null) {
+            mPagedList.unbind(holder);
+        }
+
         holder.onViewRecycled();
-        holder.getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        holder.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        if (mMetrics != null) {
+            mMetrics.recordRecycle(holder.getItemViewType());
+        }
 
-        for (SugarHolderListener listener : mSugarHolderListenerList) {
-            if (listener.isInstance(holder)) {
-                listener.onSugarHolderViewRecycled(holder);
-            }
+        for (SugarHolderListener listener : getSugarHolderListeners(holder)) {
+            listener.onSugarHolderViewRecycled(holder);
         }
     }
 
@@ -480,10 +1011,14 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
             }
         }
 
-        if (mPreInflateThread == null && mPreInflateArray != null) {
-            mPreInflateThread = new PreInflateThread(view, mPreInflateArray, mPreInflateListenerList);
-            mPreInflateThread.start();
+        if (mPreInflateTask == null && mPreInflatePool != null) {
+            PreInflateScheduler scheduler = Sugar.INSTANCE.getPreInflateScheduler();
+            mPreInflateTask = new PreInflateTask(scheduler, view, mPreInflatePool,
+                    mContainers, mPreCreateHolder, mPreInflateListenerList);
+            mPreInflateTask.start();
         }
+
+        mDataPreparer.attach(view);
     }
 
     @Override
@@ -494,32 +1029,39 @@ public final class SugarAdapter extends RecyclerView.Adapter<SugarHolder> {
             }
         }
 
-        if (mPreInflateThread != null) {
-            mPreInflateThread.interrupt();
-            mPreInflateThread = null;
+        if (mPreInflateTask != null) {
+            mPreInflateTask.cancel();
+            mPreInflateTask = null;
+        }
+
+        mDataPreparer.detach(view);
+        if (mMetrics != null) {
+            mMetrics.report();
         }
     }
 
     @SuppressWarnings("unchecked")
     protected void onSugarHolderViewAttachedToWindow(@NonNull SugarHolder holder) {
-        for (SugarHolderListener listener : mSugarHolderListenerList) {
-            if (listener.isInstance(holder)) {
-                listener.onSugarHolderViewAttachedToWindow(holder);
-            }
+        for (SugarHolderListener listener : getSugarHolderListeners(holder)) {
+            listener.onSugarHolderViewAttachedToWindow(holder);
         }
     }
 
     @SuppressWarnings("unchecked")
     protected void onSugarHolderViewDetachedFromWindow(@NonNull SugarHolder holder) {
-        for (SugarHolderListener listener : mSugarHolderListenerList) {
-            if (listener.isInstance(holder)) {
-                listener.onSugarHolderViewDetachedFromWindow(holder);
-            }
+        for (SugarHolderListener listener : getSugarHolderListeners(holder)) {
+            listener.onSugarHolderViewDetachedFromWindow(holder);
         }
     }
 
     @Override
     public boolean onFailedToRecycleView(@NonNull SugarHolder holder) {
-        return holder.onFailedToRecycleView();
+        boolean recycle = holder.onFailedToRecycleView();
+        // not recycled, the holder is dropped
+        if (!recycle && mPagedList != null) {
+            mPagedList.unbind(holder);
+        }
+
+        return recycle;
     }
 }
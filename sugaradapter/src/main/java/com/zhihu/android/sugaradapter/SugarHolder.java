@@ -39,41 +39,25 @@ public abstract class SugarHolder<T> extends RecyclerView.ViewHolder implements
     private Context mContext;
     private SugarAdapter mAdapter;
     private T mData;
+    private Object mPrepared;
     private LifecycleRegistry mLifecycleRegistry;
+    private Lifecycle.State mLifecycleState = Lifecycle.State.INITIALIZED;
 
     public SugarHolder(@NonNull View view) {
         super(view);
-        view.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
-            @Override
-            public void onViewAttachedToWindow(@NonNull View v) {
-                SugarHolder.this.onViewAttachedToWindow();
-                getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
-
-                // trick
-                if (mAdapter != null) {
-                    mAdapter.onSugarHolderViewAttachedToWindow(SugarHolder.this);
-                }
-            }
-
-            @Override
-            public void onViewDetachedFromWindow(@NonNull View v) {
-                getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_PAUSE);
-                SugarHolder.this.onViewDetachedFromWindow();
-                getLifecycleRegistry().handleLifecycleEvent(Lifecycle.Event.ON_STOP);
-
-                // trick
-                if (mAdapter != null) {
-                    mAdapter.onSugarHolderViewDetachedFromWindow(SugarHolder.this);
-                }
-            }
-        });
-
         mContext = view.getContext();
-        mLifecycleRegistry = new LifecycleRegistry(this);
 
         InjectDelegate delegate = Sugar.INSTANCE.getInjectDelegate(this);
         if (delegate != null) {
+            boolean trace = SugarTrace.sEnabled;
+            if (trace) {
+                SugarTrace.begin(getClass(), SugarTrace.INJECT);
+            }
+
             delegate.injectView(this, view);
+            if (trace) {
+                SugarTrace.end();
+            }
         }
     }
 
@@ -82,12 +66,49 @@ public abstract class SugarHolder<T> extends RecyclerView.ViewHolder implements
     @Override
     @NonNull
     public final Lifecycle getLifecycle() {
+        // most holders never observe lifecycle, so create registry lazily and catch up here
+        if (mLifecycleRegistry == null) {
+            mLifecycleRegistry = new LifecycleRegistry(this);
+            if (mLifecycleState != Lifecycle.State.INITIALIZED) {
+                mLifecycleRegistry.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+            }
+
+            if (mLifecycleState == Lifecycle.State.DESTROYED) {
+                mLifecycleRegistry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+            } else if (mLifecycleState.isAtLeast(Lifecycle.State.STARTED)) {
+                mLifecycleRegistry.handleLifecycleEvent(Lifecycle.Event.ON_START);
+                if (mLifecycleState.isAtLeast(Lifecycle.State.RESUMED)) {
+                    mLifecycleRegistry.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+                }
+            }
+        }
+
         return mLifecycleRegistry;
     }
 
-    @NonNull
-    final LifecycleRegistry getLifecycleRegistry() {
-        return mLifecycleRegistry;
+    final void handleLifecycleEvent(@NonNull Lifecycle.Event event) {
+        switch (event) {
+            case ON_CREATE:
+            case ON_STOP:
+                mLifecycleState = Lifecycle.State.CREATED;
+                break;
+            case ON_START:
+            case ON_PAUSE:
+                mLifecycleState = Lifecycle.State.STARTED;
+                break;
+            case ON_RESUME:
+                mLifecycleState = Lifecycle.State.RESUMED;
+                break;
+            case ON_DESTROY:
+                mLifecycleState = Lifecycle.State.DESTROYED;
+                break;
+            default:
+                break;
+        }
+
+        if (mLifecycleRegistry != null) {
+            mLifecycleRegistry.handleLifecycleEvent(event);
+        }
     }
 
     final void setAdapter(@NonNull SugarAdapter adapter) {
@@ -98,6 +119,10 @@ public abstract class SugarHolder<T> extends RecyclerView.ViewHolder implements
         mData = data;
     }
 
+    final void setPrepared(@Nullable Object prepared) {
+        mPrepared = prepared;
+    }
+
     // </editor-fold>
 
     // DO NOT call getAdapter() in Constructor, otherwise return null
@@ -106,12 +131,20 @@ public abstract class SugarHolder<T> extends RecyclerView.ViewHolder implements
         return mAdapter;
     }
 
-    // DO NOT call getData() in Constructor, otherwise return null
+    // DO NOT call getData() in Constructor, OnCreatedCallback, ON_CREATE or onSugarHolderCreated,
+    // data is set at bind time, otherwise return null
     @NonNull
     public final T getData() {
         return mData;
     }
 
+    // result of SugarAdapter.Preparer for getData() in onBindData, or null if no Preparer added
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public final <P> P getPrepared() {
+        return (P) mPrepared;
+    }
+
     @NonNull
     public final View getRootView() {
         return itemView;
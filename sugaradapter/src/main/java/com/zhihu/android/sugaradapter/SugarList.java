@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.view.Choreographer;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+// records changes and dispatches them as merged range notifications on the next frame,
+// SugarAdapter built with SugarList reads what has been dispatched, so it never sees undispatched structural changes
+@MainThread
+public class SugarList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int TYPE_INSERT = 1;
+    private static final int TYPE_REMOVE = 2;
+    private static final int TYPE_CHANGE = 3;
+    private static final int TYPE_MOVE = 4;
+
+    private static class Op {
+        private int mType;
+        private int mPosition;
+        private int mCount; // toPosition for TYPE_MOVE
+        private Object mPayload;
+
+        private Op(int type, int position, int count, @Nullable Object payload) {
+            mType = type;
+            mPosition = position;
+            mCount = count;
+            mPayload = payload;
+        }
+    }
+
+    private List<E> mItems;
+    private List<E> mSnapshot;
+    private List<E> mDispatchedList;
+    private List<Op> mOpList;
+    private List<ListUpdateCallback> mCallbackList;
+    private Choreographer.FrameCallback mFrameCallback;
+    private boolean mFramePosted;
+
+    public SugarList() {
+        this(new ArrayList<>());
+    }
+
+    public SugarList(@NonNull Collection<? extends E> collection) {
+        mItems = new ArrayList<>(collection);
+        mDispatchedList = new DispatchedList();
+        mOpList = new ArrayList<>();
+        mCallbackList = new ArrayList<>();
+        mFrameCallback = frameTimeNanos -> {
+            mFramePosted = false;
+            dispatch();
+        };
+    }
+
+    // <editor-fold desc="Callback">
+    public void addCallback(@NonNull ListUpdateCallback callback) {
+        if (!mCallbackList.contains(callback)) {
+            mCallbackList.add(callback);
+        }
+    }
+
+    public void removeCallback(@NonNull ListUpdateCallback callback) {
+        mCallbackList.remove(callback);
+        if (mCallbackList.isEmpty()) {
+            reset();
+        }
+    }
+
+    // dispatch pending changes now instead of the next frame
+    public void flush() {
+        if (mFramePosted) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mFramePosted = false;
+        }
+
+        dispatch();
+    }
+
+    // what callbacks have been notified of
+    @NonNull
+    List<E> getDispatchedList() {
+        return mDispatchedList;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="List">
+    @Override
+    public E get(int index) {
+        return mItems.get(index);
+    }
+
+    @Override
+    public int size() {
+        return mItems.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        // the element may have another view type, callbacks must not see it before dispatched
+        snapshot();
+        E old = mItems.set(index, element);
+        record(TYPE_CHANGE, index, 1, null);
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        snapshot();
+        mItems.add(index, element);
+        modCount++;
+        record(TYPE_INSERT, index, 1, null);
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends E> collection) {
+        return addAll(mItems.size(), collection);
+    }
+
+    @Override
+    public boolean addAll(int index, @NonNull Collection<? extends E> collection) {
+        if (collection.isEmpty()) {
+            if (index < 0 || index > mItems.size()) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + mItems.size());
+            }
+
+            return false;
+        }
+
+        snapshot();
+        mItems.addAll(index, collection);
+        modCount++;
+        record(TYPE_INSERT, index, collection.size(), null);
+        return true;
+    }
+
+    @Override
+    public E remove(int index) {
+        snapshot();
+        E old = mItems.remove(index);
+        modCount++;
+        record(TYPE_REMOVE, index, 1, null);
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+
+        snapshot();
+        mItems.subList(fromIndex, toIndex).clear();
+        modCount++;
+        record(TYPE_REMOVE, fromIndex, toIndex - fromIndex, null);
+    }
+
+    public void move(@IntRange(from = 0) int fromIndex, @IntRange(from = 0) int toIndex) {
+        if (fromIndex == toIndex) {
+            mItems.get(fromIndex);
+            return;
+        }
+
+        snapshot();
+        mItems.add(toIndex, mItems.remove(fromIndex));
+        modCount++;
+        record(TYPE_MOVE, fromIndex, toIndex, null);
+    }
+
+    // the item is modified in place
+    public void change(@IntRange(from = 0) int index) {
+        change(index, null);
+    }
+
+    public void change(@IntRange(from = 0) int index, @Nullable Object payload) {
+        mItems.get(index);
+        record(TYPE_CHANGE, index, 1, payload);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Dispatch">
+    // keep what callbacks see before the first replacing or structural change of the frame
+    private void snapshot() {
+        if (mSnapshot == null && !mCallbackList.isEmpty()) {
+            mSnapshot = new ArrayList<>(mItems);
+        }
+    }
+
+    // merge with the last op like BatchingListUpdateCallback
+    private void record(int type, int position, int count, @Nullable Object payload) {
+        if (mCallbackList.isEmpty()) {
+            return;
+        }
+
+        Op last = mOpList.isEmpty() ? null : mOpList.get(mOpList.size() - 1);
+        if (last != null && last.mType == type) {
+            switch (type) {
+                case TYPE_INSERT:
+                    if (position >= last.mPosition && position <= last.mPosition + last.mCount) {
+                        last.mCount += count;
+                        return;
+                    }
+                    break;
+                case TYPE_REMOVE:
+                    if (last.mPosition >= position && last.mPosition <= position + count) {
+                        last.mPosition = position;
+                        last.mCount += count;
+                        return;
+                    }
+                    break;
+                case TYPE_CHANGE:
+                    if (last.mPayload == payload
+                            && position <= last.mPosition + last.mCount && position + count >= last.mPosition) {
+                        int end = Math.max(last.mPosition + last.mCount, position + count);
+                        last.mPosition = Math.min(last.mPosition, position);
+                        last.mCount = end - last.mPosition;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        mOpList.add(new Op(type, position, count, payload));
+        if (!mFramePosted) {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            mFramePosted = true;
+        }
+    }
+
+    private void dispatch() {
+        if (mOpList.isEmpty()) {
+            return;
+        }
+
+        List<Op> opList = mOpList;
+        mOpList = new ArrayList<>();
+        mSnapshot = null;
+
+        for (Op op : opList) {
+            for (ListUpdateCallback callback : mCallbackList) {
+                switch (op.mType) {
+                    case TYPE_INSERT:
+                        callback.onInserted(op.mPosition, op.mCount);
+                        break;
+                    case TYPE_REMOVE:
+                        callback.onRemoved(op.mPosition, op.mCount);
+                        break;
+                    case TYPE_CHANGE:
+                        callback.onChanged(op.mPosition, op.mCount, op.mPayload);
+                        break;
+                    case TYPE_MOVE:
+                        callback.onMoved(op.mPosition, op.mCount);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    private void reset() {
+        if (mFramePosted) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mFramePosted = false;
+        }
+
+        mOpList.clear();
+        mSnapshot = null;
+    }
+
+    private class DispatchedList extends AbstractList<E> implements RandomAccess {
+        @Override
+        public E get(int index) {
+            return (mSnapshot != null ? mSnapshot : mItems).get(index);
+        }
+
+        @Override
+        public int size() {
+            return (mSnapshot != null ? mSnapshot : mItems).size();
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.util.SparseArray;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// per view type metrics of one SugarAdapter, recorded on main thread without allocation,
+// enabled by SugarAdapter.Builder#metrics(int) and read by snapshot() or Sink
+@SuppressWarnings({"unused", "WeakerAccess"})
+@MainThread
+public final class SugarMetrics {
+    public interface Sink {
+        void onReport(@NonNull Snapshot snapshot);
+    }
+
+    static final int INFLATE = 0;
+    static final int CREATE = 1;
+    static final int BIND = 2;
+    private static final int KIND_COUNT = 3;
+
+    // upper bounds of buckets in microseconds, the last bucket is unbounded
+    private static final long[] BUCKET_BOUNDS = {250L, 500L, 1000L, 2000L, 4000L, 8000L, 16000L, 32000L};
+
+    public static final class Histogram {
+        private final long[] mBucketCounts;
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        Histogram() {
+            mBucketCounts = new long[BUCKET_BOUNDS.length + 1];
+        }
+
+        private Histogram(@NonNull Histogram histogram) {
+            mBucketCounts = histogram.mBucketCounts.clone();
+            mCount = histogram.mCount;
+            mTotalNanos = histogram.mTotalNanos;
+            mMaxNanos = histogram.mMaxNanos;
+        }
+
+        void record(long nanos) {
+            long micros = nanos / 1000L;
+            int index = 0;
+            while (index < BUCKET_BOUNDS.length && micros >= BUCKET_BOUNDS[index]) {
+                index++;
+            }
+
+            mBucketCounts[index]++;
+            mCount++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+        }
+
+        void reset() {
+            for (int i = 0; i < mBucketCounts.length; i++) {
+                mBucketCounts[i] = 0L;
+            }
+
+            mCount = 0L;
+            mTotalNanos = 0L;
+            mMaxNanos = 0L;
+        }
+
+        public static int getBucketCount() {
+            return BUCKET_BOUNDS.length + 1;
+        }
+
+        // upper bound of bucket in microseconds, Long.MAX_VALUE for the last bucket
+        public static long getBucketBoundMicros(@IntRange(from = 0) int bucket) {
+            return bucket < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+        }
+
+        public long getCount(@IntRange(from = 0) int bucket) {
+            return mBucketCounts[bucket];
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMeanNanos() {
+            return mCount > 0L ? mTotalNanos / mCount : 0L;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        // upper bound of the bucket containing the percentile, capped by max
+        public long getPercentileNanos(@IntRange(from = 0, to = 100) int percentile) {
+            long rank = (mCount * percentile + 99L) / 100L;
+            long count = 0L;
+            for (int i = 0; i < mBucketCounts.length; i++) {
+                count += mBucketCounts[i];
+                if (count >= rank && count > 0L) {
+                    return i < BUCKET_BOUNDS.length ? Math.min(BUCKET_BOUNDS[i] * 1000L, mMaxNanos) : mMaxNanos;
+                }
+            }
+
+            return 0L;
+        }
+
+        @NonNull
+        Histogram copy() {
+            return new Histogram(this);
+        }
+    }
+
+    public static final class ViewTypeMetrics {
+        private final int mViewType;
+        private final Class<? extends SugarHolder> mHolderClass;
+        private final int mLayoutRes;
+        private final Histogram[] mHistograms;
+        private long mRecycleCount;
+
+        ViewTypeMetrics(@NonNull Container container) {
+            mViewType = container.getViewType();
+            mHolderClass = container.getHolderClass();
+            mLayoutRes = container.getLayoutRes();
+            mHistograms = new Histogram[KIND_COUNT];
+            for (int i = 0; i < KIND_COUNT; i++) {
+                mHistograms[i] = new Histogram();
+            }
+        }
+
+        private ViewTypeMetrics(@NonNull ViewTypeMetrics metrics) {
+            mViewType = metrics.mViewType;
+            mHolderClass = metrics.mHolderClass;
+            mLayoutRes = metrics.mLayoutRes;
+            mHistograms = new Histogram[KIND_COUNT];
+            for (int i = 0; i < KIND_COUNT; i++) {
+                mHistograms[i] = metrics.mHistograms[i].copy();
+            }
+
+            mRecycleCount = metrics.mRecycleCount;
+        }
+
+        void reset() {
+            for (Histogram histogram : mHistograms) {
+                histogram.reset();
+            }
+
+            mRecycleCount = 0L;
+        }
+
+        public int getViewType() {
+            return mViewType;
+        }
+
+        @NonNull
+        public Class<? extends SugarHolder> getHolderClass() {
+            return mHolderClass;
+        }
+
+        @LayoutRes
+        public int getLayoutRes() {
+            return mLayoutRes;
+        }
+
+        // inflated on main thread, pre-inflated views are not included
+        @NonNull
+        public Histogram getInflate() {
+            return mHistograms[INFLATE];
+        }
+
+        // constructed on main thread, pre-created holders are not included
+        @NonNull
+        public Histogram getCreate() {
+            return mHistograms[CREATE];
+        }
+
+        @NonNull
+        public Histogram getBind() {
+            return mHistograms[BIND];
+        }
+
+        public long getRecycleCount() {
+            return mRecycleCount;
+        }
+    }
+
+    public static final class LayoutMetrics {
+        private final int mLayoutRes;
+        private long mHitCount;
+        private long mFallbackCount;
+
+        LayoutMetrics(@LayoutRes int layoutRes) {
+            mLayoutRes = layoutRes;
+        }
+
+        private LayoutMetrics(@NonNull LayoutMetrics metrics) {
+            mLayoutRes = metrics.mLayoutRes;
+            mHitCount = metrics.mHitCount;
+            mFallbackCount = metrics.mFallbackCount;
+        }
+
+        void reset() {
+            mHitCount = 0L;
+            mFallbackCount = 0L;
+        }
+
+        @LayoutRes
+        public int getLayoutRes() {
+            return mLayoutRes;
+        }
+
+        // consumed from pre-inflate pool
+        public long getHitCount() {
+            return mHitCount;
+        }
+
+        // pre-inflate pool was empty, inflated on main thread
+        public long getFallbackCount() {
+            return mFallbackCount;
+        }
+
+        public float getHitRate() {
+            long total = mHitCount + mFallbackCount;
+            return total > 0L ? (float) mHitCount / total : 0.0F;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long mStartNanos;
+        private final long mEndNanos;
+        private final int mSampleInterval;
+        private final List<ViewTypeMetrics> mViewTypeList;
+        private final List<LayoutMetrics> mLayoutList;
+
+        private Snapshot(@NonNull SugarMetrics metrics) {
+            mStartNanos = metrics.mStartNanos;
+            mEndNanos = System.nanoTime();
+            mSampleInterval = metrics.mSampleInterval;
+
+            List<ViewTypeMetrics> viewTypeList = new ArrayList<>(metrics.mViewTypeMetrics.length);
+            for (ViewTypeMetrics viewType : metrics.mViewTypeMetrics) {
+                if (viewType != null) {
+                    viewTypeList.add(new ViewTypeMetrics(viewType));
+                }
+            }
+
+            List<LayoutMetrics> layoutList = new ArrayList<>(metrics.mLayoutArray.size());
+            for (int i = 0; i < metrics.mLayoutArray.size(); i++) {
+                layoutList.add(new LayoutMetrics(metrics.mLayoutArray.valueAt(i)));
+            }
+
+            mViewTypeList = Collections.unmodifiableList(viewTypeList);
+            mLayoutList = Collections.unmodifiableList(layoutList);
+        }
+
+        // since enabled or last reset
+        public long getDurationNanos() {
+            return mEndNanos - mStartNanos;
+        }
+
+        // 1 in sampleInterval inflate, create and bind is timed, counts are not sampled
+        public int getSampleInterval() {
+            return mSampleInterval;
+        }
+
+        // holders added to SugarAdapter only, ordered by view type
+        @NonNull
+        public List<ViewTypeMetrics> getViewTypes() {
+            return mViewTypeList;
+        }
+
+        // layouts with pre-inflate only
+        @NonNull
+        public List<LayoutMetrics> getLayouts() {
+            return mLayoutList;
+        }
+    }
+
+    private final int mSampleInterval;
+    private final int[] mCountdowns;
+    // indexed by view type, null for holders not added to SugarAdapter
+    private final ViewTypeMetrics[] mViewTypeMetrics;
+    private final SparseArray<LayoutMetrics> mLayoutArray;
+    private Sink mSink;
+    private long mStartNanos;
+
+    SugarMetrics(@NonNull Container[] containers, @IntRange(from = 1) int sampleInterval) {
+        mSampleInterval = Math.max(sampleInterval, 1);
+        mCountdowns = new int[KIND_COUNT];
+        mViewTypeMetrics = new ViewTypeMetrics[containers.length];
+        for (int i = 0; i < containers.length; i++) {
+            if (containers[i] != null) {
+                mViewTypeMetrics[i] = new ViewTypeMetrics(containers[i]);
+            }
+        }
+
+        mLayoutArray = new SparseArray<>();
+        mStartNanos = System.nanoTime();
+    }
+
+    // <editor-fold desc="Record">
+    void addLayout(@LayoutRes int layoutRes) {
+        if (mLayoutArray.get(layoutRes) == null) {
+            mLayoutArray.put(layoutRes, new LayoutMetrics(layoutRes));
+        }
+    }
+
+    // return start time if this one is sampled, otherwise 0
+    long start(int kind) {
+        if (--mCountdowns[kind] > 0) {
+            return 0L;
+        }
+
+        mCountdowns[kind] = mSampleInterval;
+        return System.nanoTime();
+    }
+
+    void end(int kind, int viewType, long startNanos) {
+        if (startNanos != 0L) {
+            mViewTypeMetrics[viewType].mHistograms[kind].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    void recordRecycle(int viewType) {
+        mViewTypeMetrics[viewType].mRecycleCount++;
+    }
+
+    void recordPreInflate(@LayoutRes int layoutRes, boolean fallback) {
+        LayoutMetrics metrics = mLayoutArray.get(layoutRes);
+        if (metrics == null) {
+            return;
+        }
+
+        if (fallback) {
+            metrics.mFallbackCount++;
+        } else {
+            metrics.mHitCount++;
+        }
+    }
+    // </editor-fold>
+
+    public void setSink(@Nullable Sink sink) {
+        mSink = sink;
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    public void reset() {
+        for (ViewTypeMetrics metrics : mViewTypeMetrics) {
+            if (metrics != null) {
+                metrics.reset();
+            }
+        }
+
+        for (int i = 0; i < mLayoutArray.size(); i++) {
+            mLayoutArray.valueAt(i).reset();
+        }
+
+        mStartNanos = System.nanoTime();
+    }
+
+    // pass snapshot to Sink then reset, so each report covers the time since last one;
+    // also called when SugarAdapter detached from RecyclerView
+    public void report() {
+        Sink sink = mSink;
+        if (sink != null) {
+            sink.onReport(snapshot());
+            reset();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+
+// loads fixed-size pages of PagedSource in background and keeps only the recent pages in memory,
+// positions not loaded yet are Placeholder, add a SugarHolder<SugarPagedList.Placeholder> to show them
+@MainThread
+public class SugarPagedList<T> extends AbstractList<Object> implements RandomAccess {
+    private static final String TAG = "SugarPagedList";
+
+    public static final class Placeholder {
+        private int mPosition;
+
+        private Placeholder(int position) {
+            mPosition = position;
+        }
+
+        public int getPosition() {
+            return mPosition;
+        }
+    }
+
+    private PagedSource<T> mSource;
+    private int mPageSize;
+    private int mMaxPageCount;
+    private Executor mExecutor;
+    private Handler mMainHandler;
+
+    private int mCount;
+    private Map<Integer, List<T>> mPageMap;
+    private SparseArray<Placeholder> mPlaceholderArray;
+    private SparseBooleanArray mLoadingPages;
+    private volatile int mLastAccessedPage;
+    private int mGeneration;
+    private List<ListUpdateCallback> mCallbackList;
+
+    // holder to its bound position, and count of bound positions of each page
+    private Map<Object, Integer> mBoundPositionMap;
+    private SparseIntArray mBoundCountArray;
+
+    public SugarPagedList(@NonNull PagedSource<T> source, @IntRange(from = 1) int pageSize,
+                          @IntRange(from = 1) int maxPageCount) {
+        this(source, pageSize, maxPageCount, Sugar.INSTANCE.getPageExecutor());
+    }
+
+    public SugarPagedList(@NonNull PagedSource<T> source, @IntRange(from = 1) int pageSize,
+                          @IntRange(from = 1) int maxPageCount, @NonNull Executor executor) {
+        mSource = source;
+        mPageSize = Math.max(pageSize, 1);
+        // the page accessed and the one prefetched must be kept together
+        mMaxPageCount = Math.max(maxPageCount, 2);
+        mExecutor = executor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        mCount = Math.max(source.getCount(), 0);
+        // access ordered, pages are evicted by onPageLoaded() with notification
+        mPageMap = new LinkedHashMap<>(16, 0.75F, true);
+        mPlaceholderArray = new SparseArray<>();
+        mLoadingPages = new SparseBooleanArray();
+        mCallbackList = new ArrayList<>();
+        mBoundPositionMap = new IdentityHashMap<>();
+        mBoundCountArray = new SparseIntArray();
+    }
+
+    // <editor-fold desc="Callback">
+    public void addCallback(@NonNull ListUpdateCallback callback) {
+        if (!mCallbackList.contains(callback)) {
+            mCallbackList.add(callback);
+        }
+    }
+
+    public void removeCallback(@NonNull ListUpdateCallback callback) {
+        mCallbackList.remove(callback);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Bound">
+    // called by SugarAdapter, pages of bound positions are never evicted, otherwise a visible page evicted
+    // is loaded again by its rebind and evicts another visible one, which never settles
+    void bind(@NonNull Object holder, int position) {
+        unbind(holder);
+        mBoundPositionMap.put(holder, position);
+        int page = position / mPageSize;
+        mBoundCountArray.put(page, mBoundCountArray.get(page) + 1);
+    }
+
+    void unbind(@NonNull Object holder) {
+        Integer position = mBoundPositionMap.remove(holder);
+        if (position == null) {
+            return;
+        }
+
+        int page = position / mPageSize;
+        int count = mBoundCountArray.get(page) - 1;
+        if (count > 0) {
+            mBoundCountArray.put(page, count);
+        } else {
+            mBoundCountArray.delete(page);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="List">
+    // return Placeholder and load its page if not loaded
+    @Override
+    @NonNull
+    public Object get(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mCount);
+        }
+
+        int page = index / mPageSize;
+        mLastAccessedPage = page;
+
+        // prefetch the page next to the half accessed
+        int offset = index % mPageSize;
+        int neighbor = offset < mPageSize / 2 ? page - 1 : page + 1;
+        if (neighbor >= 0 && neighbor * mPageSize < mCount) {
+            loadPage(neighbor);
+        }
+
+        List<T> items = mPageMap.get(page);
+        if (items != null && offset < items.size()) {
+            return items.get(offset);
+        }
+
+        loadPage(page);
+
+        // the same placeholder until its page loaded, get() is called for every bind
+        Placeholder placeholder = mPlaceholderArray.get(index);
+        if (placeholder == null) {
+            placeholder = new Placeholder(index);
+            mPlaceholderArray.put(index, placeholder);
+        }
+
+        return placeholder;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    // the item if loaded, without loading its page
+    @Nullable
+    public T peek(@IntRange(from = 0) int index) {
+        List<T> items = mPageMap.get(index / mPageSize);
+        int offset = index % mPageSize;
+        return items != null && offset < items.size() ? items.get(offset) : null;
+    }
+
+    // drop all pages and read count from PagedSource again
+    public void refresh() {
+        mGeneration++;
+        mPageMap.clear();
+        mPlaceholderArray.clear();
+        mLoadingPages.clear();
+
+        int oldCount = mCount;
+        mCount = Math.max(mSource.getCount(), 0);
+        int common = Math.min(oldCount, mCount);
+        for (ListUpdateCallback callback : mCallbackList) {
+            if (common > 0) {
+                callback.onChanged(0, common, null);
+            }
+
+            if (mCount > oldCount) {
+                callback.onInserted(oldCount, mCount - oldCount);
+            } else if (mCount < oldCount) {
+                callback.onRemoved(mCount, oldCount - mCount);
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Load">
+    private void loadPage(int page) {
+        if (mPageMap.containsKey(page) || mLoadingPages.get(page)) {
+            return;
+        }
+
+        mLoadingPages.put(page, true);
+        int generation = mGeneration;
+        mExecutor.execute(() -> {
+            List<T> items = null;
+            // skip pages scrolled far away before loaded
+            if (Math.abs(page - mLastAccessedPage) < mMaxPageCount) {
+                try {
+                    items = mSource.loadPage(page * mPageSize, mPageSize);
+                } catch (@NonNull Exception e) {
+                    Log.e(TAG, "loadPage failed, page: " + page, e);
+                }
+            }
+
+            List<T> result = items;
+            mMainHandler.post(() -> onPageLoaded(page, result, generation));
+        });
+    }
+
+    private void onPageLoaded(int page, @Nullable List<T> items, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        mLoadingPages.delete(page);
+        if (items == null) {
+            // load again when accessed
+            return;
+        }
+
+        if (items.size() > mPageSize) {
+            items = new ArrayList<>(items.subList(0, mPageSize));
+        }
+
+        int start = page * mPageSize;
+        if (start > mCount) {
+            return;
+        }
+
+        mPageMap.put(page, items);
+        for (int i = start; i < start + mPageSize; i++) {
+            mPlaceholderArray.delete(i);
+        }
+
+        // correct estimated count, a full page may be followed by more, a short one is the end
+        int end = start + items.size();
+        int oldCount = mCount;
+        int newCount = items.size() < mPageSize ? end : Math.max(mCount, end);
+        int changed = Math.min(end, oldCount) - start;
+
+        mCount = newCount;
+        if (newCount < oldCount) {
+            Iterator<Integer> iterator = mPageMap.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() * mPageSize >= newCount) {
+                    iterator.remove();
+                }
+            }
+
+            for (int i = mPlaceholderArray.size() - 1; i >= 0 && mPlaceholderArray.keyAt(i) >= newCount; i--) {
+                mPlaceholderArray.removeAt(i);
+            }
+        }
+
+        // evict the least recently accessed pages except the loaded, the last accessed and the bound ones,
+        // more pages than max are kept while bound, positions evicted become Placeholder, so they are notified
+        List<Integer> evictedPages = null;
+        Iterator<Integer> pages = mPageMap.keySet().iterator();
+        while (mPageMap.size() > mMaxPageCount && pages.hasNext()) {
+            int key = pages.next();
+            if (key != page && key != mLastAccessedPage && mBoundCountArray.get(key) == 0) {
+                pages.remove();
+                if (evictedPages == null) {
+                    evictedPages = new ArrayList<>();
+                }
+
+                evictedPages.add(key);
+            }
+        }
+
+        for (ListUpdateCallback callback : mCallbackList) {
+            if (changed > 0) {
+                callback.onChanged(start, changed, null);
+            }
+
+            if (newCount > oldCount) {
+                callback.onInserted(oldCount, newCount - oldCount);
+            } else if (newCount < oldCount) {
+                callback.onRemoved(newCount, oldCount - newCount);
+            }
+
+            if (evictedPages != null) {
+                for (int evicted : evictedPages) {
+                    int evictedStart = evicted * mPageSize;
+                    int evictedCount = Math.min(evictedStart + mPageSize, newCount) - evictedStart;
+                    if (evictedCount > 0) {
+                        callback.onChanged(evictedStart, evictedCount, null);
+                    }
+                }
+            }
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.core.os.TraceCompat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// trace sections labelled with the generated short name of holder,
+// callers check sEnabled first, so it costs one branch when disabled
+@AnyThread
+final class SugarTrace {
+    static final int CREATE = 0;
+    static final int BIND = 1;
+    static final int INFLATE = 2;
+    static final int INJECT = 3;
+
+    private static final String[] PREFIXES = {"Sugar create ", "Sugar bind ", "Sugar inflate ", "Sugar inject "};
+
+    // limit of Trace#beginSection
+    private static final int MAX_SECTION_LENGTH = 127;
+
+    // sections of each holder class are built once, so tracing allocates nothing after
+    private static final Map<Class<?>, String[]> sSectionsMap = new ConcurrentHashMap<>();
+
+    static volatile boolean sEnabled;
+
+    private SugarTrace() {}
+
+    static void begin(@NonNull Class<? extends SugarHolder> holderClass, int kind) {
+        TraceCompat.beginSection(getSections(holderClass)[kind]);
+    }
+
+    static void end() {
+        TraceCompat.endSection();
+    }
+
+    @NonNull
+    private static String[] getSections(@NonNull Class<? extends SugarHolder> holderClass) {
+        String[] sections = sSectionsMap.get(holderClass);
+        if (sections == null) {
+            String name = Sugar.INSTANCE.getContainerDelegate().getTraceName(holderClass);
+            sections = new String[PREFIXES.length];
+            for (int i = 0; i < PREFIXES.length; i++) {
+                String section = PREFIXES[i] + name;
+                sections[i] = section.length() > MAX_SECTION_LENGTH
+                        ? section.substring(0, MAX_SECTION_LENGTH) : section;
+            }
+
+            sSectionsMap.put(holderClass, sections);
+        }
+
+        return sections;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.IntRange;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+
+// keep in step with SugarAdapter by notify* methods,
+// so getItemViewType() only costs an array read
+class ViewTypeCache extends RecyclerView.AdapterDataObserver {
+    static final int INVALID_TYPE = -1;
+
+    private int[] mViewTypes = new int[0];
+    private int mSize;
+
+    int get(@IntRange(from = 0) int position) {
+        return position < mSize ? mViewTypes[position] : INVALID_TYPE;
+    }
+
+    void put(@IntRange(from = 0) int position, int viewType) {
+        if (position >= mSize) {
+            ensureCapacity(position + 1);
+            Arrays.fill(mViewTypes, mSize, position + 1, INVALID_TYPE);
+            mSize = position + 1;
+        }
+
+        mViewTypes[position] = viewType;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    @Override
+    public void onChanged() {
+        clear();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        if (positionStart < mSize) {
+            Arrays.fill(mViewTypes, positionStart, Math.min(positionStart + itemCount, mSize), INVALID_TYPE);
+        }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        onItemRangeChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        if (positionStart >= mSize) {
+            return;
+        }
+
+        ensureCapacity(mSize + itemCount);
+        System.arraycopy(mViewTypes, positionStart, mViewTypes, positionStart + itemCount, mSize - positionStart);
+        Arrays.fill(mViewTypes, positionStart, positionStart + itemCount, INVALID_TYPE);
+        mSize += itemCount;
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (positionStart >= mSize) {
+            return;
+        }
+
+        int end = Math.min(positionStart + itemCount, mSize);
+        System.arraycopy(mViewTypes, end, mViewTypes, positionStart, mSize - end);
+        mSize -= end - positionStart;
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        // RecyclerView only supports itemCount == 1
+        int viewType = get(fromPosition);
+        onItemRangeRemoved(fromPosition, itemCount);
+        onItemRangeInserted(toPosition, itemCount);
+        if (viewType != INVALID_TYPE && toPosition < mSize) {
+            mViewTypes[toPosition] = viewType;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mViewTypes.length) {
+            mViewTypes = Arrays.copyOf(mViewTypes, Math.max(capacity, mViewTypes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeSetTest {
+    private static final String[] NAMES = {"title", "count", "liked"};
+
+    @Test
+    public void containsByDeclaredOrder() {
+        ChangeSet set = new ChangeSet(NAMES, 0b101L);
+        assertTrue(set.contains("title"));
+        assertFalse(set.contains("count"));
+        assertTrue(set.contains("liked"));
+        assertFalse(set.contains("unknown"));
+    }
+
+    @Test
+    public void containsOnly() {
+        ChangeSet set = new ChangeSet(NAMES, 0b010L);
+        assertTrue(set.containsOnly("count"));
+        assertTrue(set.containsOnly("count", "liked"));
+        assertFalse(set.containsOnly("title"));
+        assertFalse(set.containsOnly("unknown"));
+    }
+
+    @Test
+    public void emptyMeansNothingChanged() {
+        assertTrue(new ChangeSet(NAMES, 0L).isEmpty());
+        assertFalse(new ChangeSet(NAMES, 0b001L).isEmpty());
+    }
+
+    @Test
+    public void ofMergesSameDataClass() {
+        ChangeSet first = new ChangeSet(NAMES, 0b001L);
+        assertSame(first, ChangeSet.of(Collections.singletonList(first)));
+
+        ChangeSet merged = ChangeSet.of(Arrays.asList(first, new ChangeSet(NAMES, 0b100L)));
+        assertEquals(0b101L, merged.getMask());
+    }
+
+    @Test
+    public void ofReturnsNullForFullRebind() {
+        ChangeSet set = new ChangeSet(NAMES, 0b001L);
+        assertNull(ChangeSet.of(Arrays.asList(set, "payload")));
+        assertNull(ChangeSet.of(Arrays.asList(set, new ChangeSet(new String[]{"title"}, 0b1L))));
+    }
+
+    @Test
+    public void ofEmptyPayloadsIsNull() {
+        assertNull(ChangeSet.of(Collections.emptyList()));
+    }
+
+    @Test
+    public void toStringListsChangedNames() {
+        assertEquals("ChangeSet[title, liked]", new ChangeSet(NAMES, 0b101L).toString());
+        assertEquals("ChangeSet[]", new ChangeSet(NAMES, 0L).toString());
+    }
+}
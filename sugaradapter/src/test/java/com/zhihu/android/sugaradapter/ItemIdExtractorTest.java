@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ItemIdExtractorTest {
+    @Test
+    public void hashMatchesFnv1a() {
+        assertEquals(0xcbf29ce484222325L, ItemIdExtractor.hash(""));
+        assertEquals(0xaf63dc4c8601ec8cL, ItemIdExtractor.hash("a"));
+        assertEquals(0x85944171f73967e8L, ItemIdExtractor.hash("foobar"));
+    }
+
+    @Test
+    public void hashDependsOnContentOnly() {
+        assertEquals(ItemIdExtractor.hash("foobar"), ItemIdExtractor.hash(new StringBuilder("foobar")));
+        assertEquals(ItemIdExtractor.hash("42"), ItemIdExtractor.hash((Object) 42));
+        assertNotEquals(ItemIdExtractor.hash("ab"), ItemIdExtractor.hash("ba"));
+    }
+
+    @Test
+    public void hashOfNullIsNoId() {
+        assertEquals(RecyclerView.NO_ID, ItemIdExtractor.hash((CharSequence) null));
+        assertEquals(RecyclerView.NO_ID, ItemIdExtractor.hash((Object) null));
+    }
+
+    @Test
+    public void ofNumber() {
+        assertEquals(7L, ItemIdExtractor.of(7));
+        assertEquals(-3L, ItemIdExtractor.of(-3L));
+        assertEquals(7L, ItemIdExtractor.of(7.9D));
+        assertEquals(RecyclerView.NO_ID, ItemIdExtractor.of(null));
+    }
+}
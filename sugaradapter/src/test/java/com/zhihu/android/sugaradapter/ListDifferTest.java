@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ListDifferTest {
+    private static final String[] NAMES = {"count"};
+
+    // doesn't override equals(), like most data classes
+    private static class Item {
+        private final long mId;
+        private final int mCount;
+        private final String mTitle;
+
+        private Item(long id, int count, @NonNull String title) {
+            mId = id;
+            mCount = count;
+            mTitle = title;
+        }
+    }
+
+    // same as a generated one
+    private static class ItemChangeComparator implements ChangeComparator<Item> {
+        @Nullable
+        @Override
+        public ChangeSet compare(@NonNull Item oldItem, @NonNull Item newItem) {
+            long mask = oldItem.mCount != newItem.mCount ? 1L : 0L;
+            return oldItem.mTitle.equals(newItem.mTitle) ? new ChangeSet(NAMES, mask) : null;
+        }
+    }
+
+    private static final ItemIdExtractor<Item> ID = data -> data.mId;
+
+    @Test
+    public void noGeneratedCallbackWithoutExtractorAndComparator() {
+        assertNull(ListDiffer.createGeneratedCallback(null, null));
+    }
+
+    @Test
+    public void comparatorDecidesSameContents() {
+        SugarAdapter.DiffCallback<Item> callback = callback(new ItemChangeComparator());
+        Item item = new Item(1L, 0, "a");
+        assertTrue(callback.areItemsTheSame(item, new Item(1L, 1, "b")));
+        assertTrue(callback.areContentsTheSame(item, new Item(1L, 0, "a")));
+        assertFalse(callback.areContentsTheSame(item, new Item(1L, 1, "a")));
+        assertFalse(callback.areContentsTheSame(item, new Item(1L, 0, "b")));
+    }
+
+    @Test
+    public void payloadIsChangeSetOrNullForFullRebind() {
+        SugarAdapter.DiffCallback<Item> callback = callback(new ItemChangeComparator());
+        Item item = new Item(1L, 0, "a");
+        ChangeSet changeSet = (ChangeSet) callback.getChangePayload(item, new Item(1L, 1, "a"));
+        assertEquals(1L, changeSet.getMask());
+        assertNull(callback.getChangePayload(item, new Item(1L, 1, "b")));
+    }
+
+    @Test
+    public void equalsDecidesSameContentsWithoutComparator() {
+        SugarAdapter.DiffCallback<Item> callback = callback(null);
+        Item item = new Item(1L, 0, "a");
+        assertTrue(callback.areContentsTheSame(item, item));
+        assertFalse(callback.areContentsTheSame(item, new Item(1L, 0, "a")));
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static SugarAdapter.DiffCallback<Item> callback(@Nullable ChangeComparator<Item> comparator) {
+        SugarAdapter.DiffCallback<?> callback = ListDiffer.createGeneratedCallback(ID, comparator);
+        assertNotNull(callback);
+        return (SugarAdapter.DiffCallback<Item>) callback;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import android.util.SparseIntArray;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class PreInflateTaskTest {
+    private static final int BROKEN = 100;
+    private static final int FINE = 101;
+
+    private Queue<PreInflateTask> mQueue;
+    private PreInflatePool mPool;
+    private int mBrokenCount;
+
+    @Before
+    public void setUp() {
+        mQueue = new ArrayDeque<>();
+        SparseIntArray depthArray = new SparseIntArray();
+        depthArray.put(BROKEN, 2);
+        depthArray.put(FINE, 2);
+        mPool = new PreInflatePool(depthArray);
+    }
+
+    @Test
+    public void skipsKeyFailedToInflate() {
+        PreInflateTask task = newTask();
+        task.start();
+        drain();
+
+        assertEquals(1, mBrokenCount);
+        assertNull(mPool.acquire(BROKEN));
+        assertTrue(mPool.isFull(FINE));
+    }
+
+    @Test
+    public void neverRetriesKeyFailedToInflate() {
+        PreInflateTask task = newTask();
+        task.start();
+        drain();
+
+        task.inflate(BROKEN);
+        drain();
+        assertEquals(1, mBrokenCount);
+
+        // the task is still scheduled for other keys
+        mPool.acquire(FINE);
+        task.inflate(FINE);
+        assertFalse(mQueue.isEmpty());
+        drain();
+        assertTrue(mPool.isFull(FINE));
+    }
+
+    @NonNull
+    private PreInflateTask newTask() {
+        PreInflateScheduler scheduler = new PreInflateScheduler(1) {
+            @Override
+            void execute(@NonNull PreInflateTask task) {
+                mQueue.offer(task);
+            }
+        };
+
+        Container broken = new Container(SugarHolder.class, Object.class, BROKEN, 0,
+                null, null, parent -> {
+                    mBrokenCount++;
+                    throw new IllegalStateException("broken layout");
+                }, null, null);
+        Container fine = new Container(SugarHolder.class, Object.class, FINE, 1,
+                null, null, parent -> new View(parent.getContext()), null, null);
+
+        return new PreInflateTask(scheduler, new FrameLayout(RuntimeEnvironment.application),
+                mPool, new Container[]{broken, fine}, false, new ArrayList<>());
+    }
+
+    // run scheduled turns like the worker, fail instead of looping forever
+    private void drain() {
+        for (int i = 0; i < 10 && !mQueue.isEmpty(); i++) {
+            mQueue.poll().run();
+        }
+
+        assertTrue(mQueue.isEmpty());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Choreographer is provided by Robolectric
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SugarListTest {
+    private static class RecordingCallback implements ListUpdateCallback {
+        private final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            mEvents.add("insert " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mEvents.add("remove " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mEvents.add("move " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mEvents.add("change " + position + " " + count + " " + payload);
+        }
+    }
+
+    private SugarList<String> mList;
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() {
+        // frame callbacks run only when the looper is idled
+        ShadowLooper.pauseMainLooper();
+        mList = new SugarList<>(Arrays.asList("a", "b", "c", "d", "e"));
+        mCallback = new RecordingCallback();
+        mList.addCallback(mCallback);
+    }
+
+    @Test
+    public void dispatchesOnNextFrame() {
+        mList.add("f");
+        assertTrue(mCallback.mEvents.isEmpty());
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        assertEvents("insert 5 1");
+        assertEquals(6, mList.getDispatchedList().size());
+    }
+
+    @Test
+    public void mergesAppendedInserts() {
+        mList.add("f");
+        mList.add("g");
+        mList.addAll(Arrays.asList("h", "i"));
+        mList.flush();
+        assertEvents("insert 5 4");
+    }
+
+    @Test
+    public void mergesInsertsInsideLastRange() {
+        mList.add(1, "x");
+        mList.add(1, "y");
+        mList.add(3, "z");
+        mList.flush();
+        assertEvents("insert 1 3");
+        assertEquals(Arrays.asList("a", "y", "x", "z", "b", "c", "d", "e"), mList);
+    }
+
+    @Test
+    public void mergesRemovesAtSameAndPreviousPosition() {
+        mList.remove(3);
+        mList.remove(2);
+        mList.remove(2);
+        mList.flush();
+        assertEvents("remove 2 3");
+        assertEquals(Arrays.asList("a", "b"), mList);
+    }
+
+    @Test
+    public void removeRangeIsOneRemove() {
+        mList.subList(1, 4).clear();
+        mList.flush();
+        assertEvents("remove 1 3");
+    }
+
+    @Test
+    public void mergesOverlappingChangesWithSamePayload() {
+        mList.change(1, "p");
+        mList.change(2, "p");
+        mList.change(0, "p");
+        mList.change(4, "p");
+        mList.change(3, "q");
+        mList.flush();
+        assertEvents("change 0 3 p", "change 4 1 p", "change 3 1 q");
+    }
+
+    @Test
+    public void keepsOrderOfDifferentOps() {
+        mList.add(0, "x");
+        mList.remove(3);
+        mList.move(0, 4);
+        mList.set(1, "y");
+        mList.flush();
+        assertEvents("insert 0 1", "remove 3 1", "move 0 4", "change 1 1 null");
+    }
+
+    @Test
+    public void dispatchedListLagsUntilDispatch() {
+        mList.add(0, "x");
+        mList.remove(5);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), mList.getDispatchedList());
+
+        mList.flush();
+        assertEquals(Arrays.asList("x", "a", "b", "c", "d"), mList.getDispatchedList());
+    }
+
+    @Test
+    public void setIsNotDispatchedBeforeFlush() {
+        mList.set(2, "x");
+        assertEquals("c", mList.getDispatchedList().get(2));
+        assertEquals("x", mList.get(2));
+
+        mList.flush();
+        assertEquals("x", mList.getDispatchedList().get(2));
+        assertEvents("change 2 1 null");
+    }
+
+    @Test
+    public void flushWithoutChangesDispatchesNothing() {
+        mList.flush();
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        assertEvents();
+    }
+
+    @Test
+    public void removingLastCallbackDropsPendingChanges() {
+        mList.add("f");
+        mList.removeCallback(mCallback);
+        assertEquals(6, mList.getDispatchedList().size());
+
+        mList.addCallback(mCallback);
+        mList.flush();
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        assertEvents();
+    }
+
+    @Test
+    public void recordsNothingWithoutCallback() {
+        SugarList<String> list = new SugarList<>();
+        list.add("a");
+        assertEquals(Collections.singletonList("a"), list.getDispatchedList());
+    }
+
+    private void assertEvents(String... events) {
+        assertEquals(Arrays.asList(events), mCallback.mEvents);
+    }
+}
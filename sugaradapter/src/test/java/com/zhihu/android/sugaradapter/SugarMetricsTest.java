@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+// SparseArray is provided by Robolectric
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SugarMetricsTest {
+    private static final long MICROS = 1000L;
+    private static final long MILLIS = 1000L * MICROS;
+
+    // <editor-fold desc="Histogram">
+    @Test
+    public void bucketBounds() {
+        assertEquals(9, SugarMetrics.Histogram.getBucketCount());
+        assertEquals(250L, SugarMetrics.Histogram.getBucketBoundMicros(0));
+        assertEquals(32000L, SugarMetrics.Histogram.getBucketBoundMicros(7));
+        assertEquals(Long.MAX_VALUE, SugarMetrics.Histogram.getBucketBoundMicros(8));
+    }
+
+    @Test
+    public void recordsIntoBucketByUpperBound() {
+        SugarMetrics.Histogram histogram = new SugarMetrics.Histogram();
+        histogram.record(0L);
+        histogram.record(250L * MICROS - 1L);
+        histogram.record(250L * MICROS);
+        histogram.record(32L * MILLIS - 1L);
+        histogram.record(32L * MILLIS);
+        histogram.record(1000L * MILLIS);
+
+        assertEquals(2L, histogram.getCount(0));
+        assertEquals(1L, histogram.getCount(1));
+        assertEquals(1L, histogram.getCount(7));
+        assertEquals(2L, histogram.getCount(8));
+        assertEquals(6L, histogram.getCount());
+        assertEquals(1000L * MILLIS, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void meanAndTotal() {
+        SugarMetrics.Histogram histogram = new SugarMetrics.Histogram();
+        assertEquals(0L, histogram.getMeanNanos());
+
+        histogram.record(MILLIS);
+        histogram.record(3L * MILLIS);
+        assertEquals(4L * MILLIS, histogram.getTotalNanos());
+        assertEquals(2L * MILLIS, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void percentileIsBucketBoundCappedByMax() {
+        SugarMetrics.Histogram histogram = new SugarMetrics.Histogram();
+        assertEquals(0L, histogram.getPercentileNanos(50));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100L * MICROS);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(3L * MILLIS);
+        }
+
+        assertEquals(250L * MICROS, histogram.getPercentileNanos(50));
+        assertEquals(250L * MICROS, histogram.getPercentileNanos(90));
+        assertEquals(3L * MILLIS, histogram.getPercentileNanos(91));
+        assertEquals(3L * MILLIS, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentileInLastBucketIsMax() {
+        SugarMetrics.Histogram histogram = new SugarMetrics.Histogram();
+        histogram.record(50L * MILLIS);
+        histogram.record(70L * MILLIS);
+        assertEquals(70L * MILLIS, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void copyIsIndependentAndResetClears() {
+        SugarMetrics.Histogram histogram = new SugarMetrics.Histogram();
+        histogram.record(MILLIS);
+        SugarMetrics.Histogram copy = histogram.copy();
+        histogram.reset();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getCount(3));
+        assertEquals(0L, histogram.getMaxNanos());
+        assertEquals(1L, copy.getCount());
+        assertEquals(1L, copy.getCount(3));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="SugarMetrics">
+    @Test
+    public void samplesOneInInterval() {
+        SugarMetrics metrics = new SugarMetrics(containers(1), 3);
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            long start = metrics.start(SugarMetrics.BIND);
+            if (start != 0L) {
+                sampled++;
+            }
+            metrics.end(SugarMetrics.BIND, 0, start);
+        }
+
+        assertEquals(3, sampled);
+        assertEquals(3L, metrics.snapshot().getViewTypes().get(0).getBind().getCount());
+        assertEquals(3, metrics.snapshot().getSampleInterval());
+    }
+
+    @Test
+    public void skipsViewTypesNotAdded() {
+        Container[] containers = containers(3);
+        containers[1] = null;
+        SugarMetrics metrics = new SugarMetrics(containers, 1);
+        metrics.recordRecycle(2);
+        metrics.reset();
+        metrics.recordRecycle(2);
+
+        List<SugarMetrics.ViewTypeMetrics> viewTypes = metrics.snapshot().getViewTypes();
+        assertEquals(2, viewTypes.size());
+        assertEquals(0, viewTypes.get(0).getViewType());
+        assertEquals(2, viewTypes.get(1).getViewType());
+        assertEquals(1L, viewTypes.get(1).getRecycleCount());
+    }
+
+    @Test
+    public void countsPreInflateOfAddedLayoutsOnly() {
+        SugarMetrics metrics = new SugarMetrics(containers(1), 1);
+        metrics.addLayout(100);
+        metrics.recordPreInflate(100, false);
+        metrics.recordPreInflate(100, false);
+        metrics.recordPreInflate(100, true);
+        metrics.recordPreInflate(200, true);
+
+        List<SugarMetrics.LayoutMetrics> layouts = metrics.snapshot().getLayouts();
+        assertEquals(1, layouts.size());
+        assertEquals(2L, layouts.get(0).getHitCount());
+        assertEquals(1L, layouts.get(0).getFallbackCount());
+        assertEquals(2.0F / 3.0F, layouts.get(0).getHitRate(), 0.0001F);
+    }
+
+    @Test
+    public void reportPassesSnapshotThenResets() {
+        SugarMetrics metrics = new SugarMetrics(containers(1), 1);
+        List<SugarMetrics.Snapshot> reports = new ArrayList<>();
+        metrics.report();
+
+        metrics.setSink(reports::add);
+        metrics.recordRecycle(0);
+        metrics.report();
+        metrics.report();
+
+        assertEquals(2, reports.size());
+        assertEquals(1L, reports.get(0).getViewTypes().get(0).getRecycleCount());
+        assertEquals(0L, reports.get(1).getViewTypes().get(0).getRecycleCount());
+        assertNotEquals(0L, reports.get(0).getDurationNanos());
+    }
+    // </editor-fold>
+
+    private static Container[] containers(int count) {
+        Container[] containers = new Container[count];
+        for (int i = 0; i < count; i++) {
+            containers[i] = new Container(SugarHolder.class, Object.class, 100 + i, i,
+                    null, null, null, null, null);
+        }
+
+        return containers;
+    }
+}
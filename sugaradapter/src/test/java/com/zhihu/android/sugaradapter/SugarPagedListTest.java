@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// pages are loaded on the calling thread, and delivered when the main looper is idled
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SugarPagedListTest {
+    private static final int PAGE_SIZE = 10;
+
+    private static class FakeSource implements PagedSource<String> {
+        private int mCount;
+        private int mRealCount;
+        private boolean mFailNext;
+        private final List<Integer> mLoadedPositions = new ArrayList<>();
+
+        private FakeSource(int count, int realCount) {
+            mCount = count;
+            mRealCount = realCount;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        @NonNull
+        public List<String> loadPage(int position, int count) {
+            mLoadedPositions.add(position);
+            if (mFailNext) {
+                mFailNext = false;
+                throw new IllegalStateException("load failed");
+            }
+
+            List<String> items = new ArrayList<>();
+            for (int i = position; i < Math.min(position + count, mRealCount); i++) {
+                items.add("item " + i);
+            }
+
+            return items;
+        }
+    }
+
+    private static class RecordingCallback implements ListUpdateCallback {
+        private final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            mEvents.add("insert " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mEvents.add("remove " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mEvents.add("move " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mEvents.add("change " + position + " " + count);
+        }
+    }
+
+    private FakeSource mSource;
+    private SugarPagedList<String> mList;
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mSource = new FakeSource(100, 100);
+        mList = new SugarPagedList<>(mSource, PAGE_SIZE, 2, Runnable::run);
+        mCallback = new RecordingCallback();
+        mList.addCallback(mCallback);
+    }
+
+    @Test
+    public void returnsSamePlaceholderUntilLoaded() {
+        Object first = mList.get(3);
+        assertTrue(first instanceof SugarPagedList.Placeholder);
+        assertEquals(3, ((SugarPagedList.Placeholder) first).getPosition());
+        assertSame(first, mList.get(3));
+        assertEquals(Arrays.asList(0), mSource.mLoadedPositions);
+
+        ShadowLooper.idleMainLooper();
+        assertEquals("item 3", mList.get(3));
+        assertEvents("change 0 10");
+    }
+
+    @Test
+    public void prefetchesNeighborPage() {
+        mList.get(17);
+        assertEquals(Arrays.asList(20, 10), mSource.mLoadedPositions);
+
+        mList.get(21);
+        mList.get(15);
+        assertEquals(Arrays.asList(20, 10), mSource.mLoadedPositions);
+    }
+
+    @Test
+    public void evictsLeastRecentlyAccessedPageWithNotification() {
+        Object placeholder = mList.get(0);
+        ShadowLooper.idleMainLooper();
+        assertEquals("item 0", mList.peek(0));
+
+        mList.get(20);
+        ShadowLooper.idleMainLooper();
+        assertEvents("change 0 10", "change 10 10", "change 20 10", "change 0 10");
+        assertNull(mList.peek(0));
+        assertEquals("item 10", mList.peek(10));
+        assertEquals("item 20", mList.peek(20));
+
+        Object reloading = mList.get(0);
+        assertTrue(reloading instanceof SugarPagedList.Placeholder);
+        assertNotSame(placeholder, reloading);
+    }
+
+    @Test
+    public void keepsLastAccessedPage() {
+        mList.get(0);
+        ShadowLooper.idleMainLooper();
+
+        // page 1 and 2 are loaded while page 0 is accessed again
+        mList.get(19);
+        mList.get(0);
+        ShadowLooper.idleMainLooper();
+        assertEvents("change 0 10", "change 20 10", "change 10 10", "change 20 10");
+        assertEquals("item 0", mList.peek(0));
+        assertEquals("item 10", mList.peek(10));
+        assertNull(mList.peek(20));
+    }
+
+    @Test
+    public void neverEvictsBoundPages() {
+        Object first = new Object();
+        mList.bind(first, 0);
+        mList.bind(new Object(), 10);
+
+        // visible pages are more than max
+        mList.get(0);
+        mList.get(10);
+        mList.get(25);
+        ShadowLooper.idleMainLooper();
+        assertEquals("item 0", mList.peek(0));
+        assertEquals("item 10", mList.peek(10));
+        assertEquals("item 25", mList.peek(25));
+
+        mList.unbind(first);
+        mList.get(45);
+        ShadowLooper.idleMainLooper();
+        assertNull(mList.peek(0));
+        assertEquals("item 10", mList.peek(10));
+        assertEquals("item 45", mList.peek(45));
+    }
+
+    @Test
+    public void shortPageCorrectsCountDown() {
+        mSource = new FakeSource(25, 23);
+        mList = new SugarPagedList<>(mSource, PAGE_SIZE, 2, Runnable::run);
+        mList.addCallback(mCallback);
+
+        mList.get(20);
+        ShadowLooper.idleMainLooper();
+        assertEvents("change 10 10", "change 20 3", "remove 23 2");
+        assertEquals(23, mList.size());
+    }
+
+    @Test
+    public void fullPageCorrectsCountUp() {
+        mSource = new FakeSource(15, 100);
+        mList = new SugarPagedList<>(mSource, PAGE_SIZE, 2, Runnable::run);
+        mList.addCallback(mCallback);
+
+        mList.get(10);
+        ShadowLooper.idleMainLooper();
+        assertEvents("change 0 10", "change 10 5", "insert 15 5");
+        assertEquals(20, mList.size());
+    }
+
+    @Test
+    public void failedPageLoadsAgainWhenAccessed() {
+        mSource.mFailNext = true;
+        mList.get(0);
+        ShadowLooper.idleMainLooper();
+        assertEvents();
+        assertNull(mList.peek(0));
+
+        mList.get(0);
+        ShadowLooper.idleMainLooper();
+        assertEquals(Arrays.asList(0, 0), mSource.mLoadedPositions);
+        assertEquals("item 0", mList.peek(0));
+    }
+
+    @Test
+    public void refreshDropsPagesAndPendingLoads() {
+        mList.get(0);
+        mSource.mCount = 80;
+        mList.refresh();
+        ShadowLooper.idleMainLooper();
+        assertEvents("change 0 80", "remove 80 20");
+        assertNull(mList.peek(0));
+        assertEquals(80, mList.size());
+
+        Object placeholder = mList.get(0);
+        assertNotNull(placeholder);
+        ShadowLooper.idleMainLooper();
+        assertEquals("item 0", mList.get(0));
+    }
+
+    private void assertEvents(String... events) {
+        assertEquals(Arrays.asList(events), mCallback.mEvents);
+    }
+}
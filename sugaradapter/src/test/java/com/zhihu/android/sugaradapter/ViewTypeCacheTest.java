@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Matthew Lee
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zhihu.android.sugaradapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.zhihu.android.sugaradapter.ViewTypeCache.INVALID_TYPE;
+import static org.junit.Assert.assertEquals;
+
+public class ViewTypeCacheTest {
+    private ViewTypeCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new ViewTypeCache();
+        for (int i = 0; i < 5; i++) {
+            mCache.put(i, 10 + i);
+        }
+    }
+
+    @Test
+    public void getReturnsInvalidTypeBeyondSize() {
+        assertEquals(INVALID_TYPE, mCache.get(5));
+        assertEquals(INVALID_TYPE, new ViewTypeCache().get(0));
+    }
+
+    @Test
+    public void putBeyondSizeFillsGapWithInvalidType() {
+        mCache.put(8, 18);
+        assertTypes(10, 11, 12, 13, 14, INVALID_TYPE, INVALID_TYPE, INVALID_TYPE, 18);
+    }
+
+    @Test
+    public void onChangedClearsAll() {
+        mCache.onChanged();
+        assertEquals(INVALID_TYPE, mCache.get(0));
+        assertEquals(INVALID_TYPE, mCache.get(4));
+    }
+
+    @Test
+    public void onItemRangeChangedInvalidatesRange() {
+        mCache.onItemRangeChanged(1, 2);
+        assertTypes(10, INVALID_TYPE, INVALID_TYPE, 13, 14);
+
+        mCache.onItemRangeChanged(3, 10, null);
+        assertTypes(10, INVALID_TYPE, INVALID_TYPE, INVALID_TYPE, INVALID_TYPE);
+    }
+
+    @Test
+    public void onItemRangeInsertedShiftsFollowing() {
+        mCache.onItemRangeInserted(1, 2);
+        assertTypes(10, INVALID_TYPE, INVALID_TYPE, 11, 12, 13, 14);
+    }
+
+    @Test
+    public void onItemRangeInsertedAtEndKeepsSize() {
+        mCache.onItemRangeInserted(5, 3);
+        assertTypes(10, 11, 12, 13, 14);
+        assertEquals(INVALID_TYPE, mCache.get(5));
+    }
+
+    @Test
+    public void onItemRangeInsertedGrowsCapacity() {
+        mCache.onItemRangeInserted(0, 100);
+        assertEquals(INVALID_TYPE, mCache.get(99));
+        assertEquals(10, mCache.get(100));
+        assertEquals(14, mCache.get(104));
+        assertEquals(INVALID_TYPE, mCache.get(105));
+    }
+
+    @Test
+    public void onItemRangeRemovedShiftsFollowing() {
+        mCache.onItemRangeRemoved(1, 2);
+        assertTypes(10, 13, 14);
+        assertEquals(INVALID_TYPE, mCache.get(3));
+    }
+
+    @Test
+    public void onItemRangeRemovedClampsToSize() {
+        mCache.onItemRangeRemoved(3, 10);
+        assertTypes(10, 11, 12);
+        assertEquals(INVALID_TYPE, mCache.get(3));
+
+        mCache.onItemRangeRemoved(5, 1);
+        assertTypes(10, 11, 12);
+    }
+
+    @Test
+    public void onItemRangeMovedForward() {
+        mCache.onItemRangeMoved(1, 3, 1);
+        assertTypes(10, 12, 13, 11, 14);
+    }
+
+    @Test
+    public void onItemRangeMovedBackward() {
+        mCache.onItemRangeMoved(4, 0, 1);
+        assertTypes(14, 10, 11, 12, 13);
+    }
+
+    @Test
+    public void onItemRangeMovedKeepsInvalidType() {
+        mCache.onItemRangeChanged(0, 1);
+        mCache.onItemRangeMoved(0, 2, 1);
+        assertTypes(11, 12, INVALID_TYPE, 13, 14);
+    }
+
+    @Test
+    public void clearThenPutStartsOver() {
+        mCache.clear();
+        mCache.put(1, 21);
+        assertTypes(INVALID_TYPE, 21);
+        assertEquals(INVALID_TYPE, mCache.get(2));
+    }
+
+    private void assertTypes(int... viewTypes) {
+        for (int i = 0; i < viewTypes.length; i++) {
+            assertEquals("position " + i, viewTypes[i], mCache.get(i));
+        }
+    }
+}